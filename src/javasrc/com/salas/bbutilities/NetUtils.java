@@ -24,8 +24,6 @@
 
 package com.salas.bbutilities;
 
-import java.util.regex.Pattern;
-
 /**
  * The set of different network-related utils.
  */
@@ -36,8 +34,13 @@ public final class NetUtils
     {
     }
 
+    /** Prefix of the feed pseudo-protocol. */
+    private static final String FEED_PREFIX = "feed:";
+
     /**
-     * Replaces <code>feed://</code> with <code>http://</code> if required.
+     * Replaces <code>feed://</code> with <code>http://</code> if required. The URL is
+     * scanned once: all nested <code>feed:</code> prefixes are skipped along with the
+     * slashes and spaces after them.
      *
      * @param url source URL.
      *
@@ -45,25 +48,92 @@ public final class NetUtils
      */
     public static String fixFeedURL(String url)
     {
-        if (url != null)
+        if (url == null) return null;
+
+        int start = 0;
+        int end = url.length();
+        while (start < end && url.charAt(start) <= ' ') start++;
+        while (end > start && url.charAt(end - 1) <= ' ') end--;
+        if (start == end) return null;
+
+        boolean feed = false;
+        while (url.startsWith(FEED_PREFIX, start))
         {
-            url = url.trim();
-            if (url.length() == 0)
-            {
-                url = null;
-            } else if (url.startsWith("feed:"))
-            {
-                url = url.substring(5).replaceAll("^/+", "").trim();
-                if (url.startsWith("feed:"))
-                {
-                    url = fixFeedURL(url);
-                } else if (!url.startsWith("http:"))
-                {
-                    url = "http://" + url;
-                }
-            }
+            feed = true;
+            start += FEED_PREFIX.length();
+            while (start < end && url.charAt(start) == '/') start++;
+            while (start < end && url.charAt(start) <= ' ') start++;
         }
 
-        return url;
+        String fixed = url.substring(start, end);
+        if (feed && !url.startsWith("http:", start)) fixed = "http://" + fixed;
+
+        return fixed;
+    }
+
+    /**
+     * Fixes all URL's in the array in place.
+     *
+     * @param urls URL's.
+     *
+     * @return the same array.
+     *
+     * @see #fixFeedURL(String)
+     */
+    public static String[] fixFeedURLs(String[] urls)
+    {
+        for (int i = 0; i < urls.length; i++) urls[i] = fixFeedURL(urls[i]);
+        return urls;
+    }
+
+    /**
+     * Returns canonical form of the feed URL to compare URL's written in different ways.
+     * It isn't meant for fetching: the feed prefix is replaced, HTTPS is turned into
+     * HTTP, the scheme and host are lower-cased, the default port, the fragment and
+     * trailing slashes of the path are dropped. Relative URL's are only trimmed.
+     *
+     * @param url source URL.
+     *
+     * @return canonical URL or <code>NULL</code> if the URL is empty.
+     *
+     * @see #fixFeedURL(String)
+     */
+    public static String getCanonicalURL(String url)
+    {
+        url = fixFeedURL(url);
+        if (url == null) return null;
+
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0) return url;
+
+        String scheme = url.substring(0, schemeEnd).toLowerCase();
+        boolean http = scheme.equals("http") || scheme.equals("https");
+        if (http) scheme = "http";
+
+        int hostStart = schemeEnd + 3;
+        int end = url.indexOf('#', hostStart);
+        if (end == -1) end = url.length();
+
+        int pathStart = hostStart;
+        while (pathStart < end && "/?".indexOf(url.charAt(pathStart)) == -1) pathStart++;
+
+        String host = url.substring(hostStart, pathStart).toLowerCase();
+        if (http && (host.endsWith(":80") || host.endsWith(":443")))
+        {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+
+        int queryStart = url.indexOf('?', pathStart);
+        if (queryStart == -1 || queryStart > end) queryStart = end;
+
+        int pathEnd = queryStart;
+        while (pathEnd > pathStart && url.charAt(pathEnd - 1) == '/') pathEnd--;
+
+        StringBuilder canonical = new StringBuilder(end - hostStart + scheme.length() + 3);
+        canonical.append(scheme).append("://").append(host);
+        canonical.append(url, pathStart, pathEnd);
+        canonical.append(url, queryStart, end);
+
+        return canonical.toString();
     }
 }
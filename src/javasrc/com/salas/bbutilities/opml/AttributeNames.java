@@ -0,0 +1,146 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.FormatConstants;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowercase forms of the attribute names from {@link FormatConstants}. Attributes of
+ * outlines are matched regardless of case, and converting the names on every lookup
+ * creates lots of garbage on large imports. The table is filled once when the class loads.
+ */
+final class AttributeNames
+{
+    private static final Map<String, String> LOWERCASE = new HashMap<String, String>();
+
+    static
+    {
+        for (Field field : FormatConstants.class.getFields())
+        {
+            if (field.getName().startsWith("ATTR_") && field.getType() == String.class &&
+                Modifier.isStatic(field.getModifiers()))
+            {
+                try
+                {
+                    register((String)field.get(null));
+                } catch (IllegalAccessException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        // Names used without constants
+        register("keywords");
+        register("url");
+    }
+
+    /**
+     * Hidden utility class constructor.
+     */
+    private AttributeNames()
+    {
+    }
+
+    /**
+     * Puts the lowercase form of the name into the table.
+     *
+     * @param name name.
+     */
+    private static void register(String name)
+    {
+        String lowercase = name.toLowerCase().intern();
+        LOWERCASE.put(name, lowercase);
+        LOWERCASE.put(lowercase, lowercase);
+    }
+
+    /**
+     * Returns the lowercase form of the attribute name. Known names are taken from the
+     * table without any allocation; all others are converted.
+     *
+     * @param name name.
+     *
+     * @return lowercase name.
+     */
+    static String lowercase(String name)
+    {
+        String lowercase = LOWERCASE.get(name);
+        return lowercase == null ? name.toLowerCase() : lowercase;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the name has no characters to convert to lower case.
+     *
+     * @param name name.
+     *
+     * @return <code>TRUE</code> if the name has no characters to convert to lower case.
+     */
+    static boolean isLowercase(String name)
+    {
+        for (int i = 0; i < name.length(); i++)
+        {
+            char ch = name.charAt(i);
+            if (Character.toLowerCase(ch) != ch) return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Finds the attribute of the element by its name in any case. The element is left
+     * intact and no objects are created on the way.
+     *
+     * @param element   element.
+     * @param name      name of attribute.
+     * @param ns        namespace of attribute or <code>NULL</code> if it has no namespace.
+     *
+     * @return attribute or <code>NULL</code> if not found.
+     */
+    static Attribute find(Element element, String name, Namespace ns)
+    {
+        String uri = ns == null ? "" : ns.getURI();
+
+        List attributes = element.getAttributes();
+        for (int i = 0; i < attributes.size(); i++)
+        {
+            Attribute attribute = (Attribute)attributes.get(i);
+            if (name.equalsIgnoreCase(attribute.getName()) && uri.equals(attribute.getNamespaceURI()))
+            {
+                return attribute;
+            }
+        }
+
+        return null;
+    }
+}
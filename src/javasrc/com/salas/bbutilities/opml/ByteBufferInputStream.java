@@ -0,0 +1,100 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream reading the bytes of the buffer from its position to its limit. The
+ * buffer itself is left intact as the stream reads its duplicate.
+ */
+final class ByteBufferInputStream extends InputStream
+{
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates stream.
+     *
+     * @param aBuffer buffer to read.
+     */
+    ByteBufferInputStream(ByteBuffer aBuffer)
+    {
+        buffer = aBuffer.duplicate();
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return byte or <code>-1</code> if there's no more data.
+     */
+    public int read()
+    {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    /**
+     * Reads bytes into the array.
+     *
+     * @param b     array.
+     * @param off   offset in the array.
+     * @param len   maximum number of bytes to read.
+     *
+     * @return number of bytes read or <code>-1</code> if there's no more data.
+     */
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0) return 0;
+        if (!buffer.hasRemaining()) return -1;
+
+        len = Math.min(len, buffer.remaining());
+        buffer.get(b, off, len);
+        return len;
+    }
+
+    /**
+     * Skips bytes.
+     *
+     * @param n number of bytes to skip.
+     *
+     * @return number of bytes skipped.
+     */
+    public long skip(long n)
+    {
+        int skip = (int)Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skip);
+        return skip;
+    }
+
+    /**
+     * Returns the number of bytes left.
+     *
+     * @return bytes left.
+     */
+    public int available()
+    {
+        return buffer.remaining();
+    }
+}
@@ -0,0 +1,322 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.ArticleKeys;
+import com.salas.bbutilities.opml.objects.FormatConstants;
+import com.salas.bbutilities.opml.utils.StringPool;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Values of the feed attributes of a single outline. The attributes are decoded in
+ * one pass over the outline, so building a feed costs the same no matter how many
+ * values it needs. Each thread reuses its own instance: the values are only valid
+ * until the next call to {@link #decode(Element, Namespace)} from the same thread.
+ */
+final class FeedAttributes implements FormatConstants
+{
+    private static final Logger LOG = Logger.getLogger(FeedAttributes.class.getName());
+
+    // Attributes without namespace
+    static final int TITLE                  = 0;
+    static final int TEXT                   = 1;
+    static final int XML_URL                = 2;
+    static final int URL                    = 3;
+    static final int HTML_URL               = 4;
+
+    // Attributes from BB namespace
+    static final int READ_ARTICLES          = 5;
+    static final int PINNED_ARTICLES        = 6;
+    static final int QUERY_TYPE             = 7;
+    static final int QUERY_PARAM            = 8;
+    static final int KEYWORDS               = 9;
+    static final int QUERY                  = 10;
+    static final int RATING                 = 11;
+    static final int LIMIT                  = 12;
+    static final int VIEW_TYPE              = 13;
+    static final int VIEW_MODE_ENABLED      = 14;
+    static final int VIEW_MODE              = 15;
+    static final int HANDLING_TYPE          = 16;
+    static final int DEDUP_ENABLED          = 17;
+    static final int DEDUP_FROM             = 18;
+    static final int DEDUP_TO               = 19;
+    static final int ASCENDING_SORTING      = 20;
+    static final int UPDATE_PERIOD          = 21;
+    static final int CUSTOM_TITLE           = 22;
+    static final int CUSTOM_CREATOR         = 23;
+    static final int CUSTOM_DESCRIPTION     = 24;
+    static final int TAGS                   = 25;
+    static final int TAGS_DESCRIPTION       = 26;
+    static final int TAGS_EXTENDED          = 27;
+    static final int DISABLED               = 28;
+    static final int READ_ARTICLES_PACKED   = 29;
+    static final int PINNED_ARTICLES_PACKED = 30;
+
+    private static final int FIRST_BB       = READ_ARTICLES;
+
+    /** Names of the attributes by their codes. */
+    private static final String[] NAMES = {
+        ATTR_FEED_TITLE, ATTR_FEED_TEXT, ATTR_FEED_XML_URL, "url", ATTR_FEED_HTML_URL,
+        ATTR_FEED_READ_ARTICLES, ATTR_FEED_PINNED_ARTICLES, ATTR_FEED_QUERY_TYPE, ATTR_FEED_QUERY_PARAM,
+        "keywords", ATTR_FEED_QUERY, ATTR_FEED_RATING, ATTR_FEED_LIMIT, ATTR_FEED_VIEW_TYPE,
+        ATTR_FEED_VIEW_MODE_ENABLED, ATTR_FEED_VIEW_MODE, ATTR_FEED_HANDLING_TYPE, ATTR_FEED_DEDUP_ENABLED,
+        ATTR_FEED_DEDUP_FROM, ATTR_FEED_DEDUP_TO, ATTR_FEED_ASCENDING_SORTING, ATTR_FEED_UPDATE_PERIOD,
+        ATTR_FEED_CUSTOM_TITLE, ATTR_FEED_CUSTOM_CREATOR, ATTR_FEED_CUSTOM_DESCRIPTION, ATTR_TAGS,
+        ATTR_TAGS_DESCRIPTION, ATTR_TAGS_EXTENDED, ATTR_DISABLED, ATTR_FEED_READ_ARTICLES_PACKED,
+        ATTR_FEED_PINNED_ARTICLES_PACKED
+    };
+
+    /** Codes of the attributes with values which tend to repeat from feed to feed. */
+    private static final int[] POOLED = {
+        HTML_URL, CUSTOM_CREATOR, CUSTOM_DESCRIPTION, TAGS, TAGS_DESCRIPTION, TAGS_EXTENDED
+    };
+
+    /** Codes of the attributes by their lowercase names. */
+    private static final Map<String, Integer> CODES = new HashMap<String, Integer>();
+
+    static
+    {
+        for (int i = 0; i < NAMES.length; i++) CODES.put(AttributeNames.lowercase(NAMES[i]), i);
+    }
+
+    private static final ThreadLocal<FeedAttributes> INSTANCES = new ThreadLocal<FeedAttributes>()
+    {
+        protected FeedAttributes initialValue()
+        {
+            return new FeedAttributes();
+        }
+    };
+
+    private final String[] values = new String[NAMES.length];
+
+    /**
+     * Creates holder.
+     */
+    private FeedAttributes()
+    {
+    }
+
+    /**
+     * Decodes the attributes of the outline into the instance of current thread.
+     *
+     * @param outline   outline.
+     * @param bbns      BB namespace or <code>NULL</code> if attributes have no namespace.
+     *
+     * @return attributes.
+     */
+    static FeedAttributes decode(Element outline, Namespace bbns)
+    {
+        return decode(outline, bbns, null);
+    }
+
+    /**
+     * Decodes the attributes of the outline into the instance of current thread. The values
+     * which tend to repeat are taken from the pool.
+     *
+     * @param outline   outline.
+     * @param bbns      BB namespace or <code>NULL</code> if attributes have no namespace.
+     * @param pool      pool of values or <code>NULL</code> to keep values as they are.
+     *
+     * @return attributes.
+     */
+    static FeedAttributes decode(Element outline, Namespace bbns, StringPool pool)
+    {
+        FeedAttributes attributes = INSTANCES.get();
+        attributes.read(outline, bbns);
+        if (pool != null)
+        {
+            for (int code : POOLED) attributes.values[code] = pool.get(attributes.values[code]);
+        }
+
+        return attributes;
+    }
+
+    /**
+     * Reads the values from the outline, forgetting the previous ones.
+     *
+     * @param outline   outline.
+     * @param bbns      BB namespace.
+     */
+    private void read(Element outline, Namespace bbns)
+    {
+        for (int i = 0; i < values.length; i++) values[i] = null;
+
+        String bbURI = bbns == null ? "" : bbns.getURI();
+        List attributes = outline.getAttributes();
+        for (int i = 0; i < attributes.size(); i++)
+        {
+            Attribute attribute = (Attribute)attributes.get(i);
+            String name = attribute.getName();
+            Integer code = CODES.get(name);
+            if (code == null && !AttributeNames.isLowercase(name)) code = CODES.get(name.toLowerCase());
+            if (code != null)
+            {
+                String uri = attribute.getNamespaceURI();
+                if (code < FIRST_BB ? uri.length() == 0 : bbURI.equals(uri))
+                {
+                    values[code] = attribute.getValue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the value of attribute.
+     *
+     * @param code code of attribute.
+     *
+     * @return value or <code>NULL</code> if not present.
+     */
+    String get(int code)
+    {
+        return values[code];
+    }
+
+    /**
+     * Returns the title of outline -- "title" attribute or "text" when the title is empty.
+     *
+     * @return title.
+     */
+    String getTitle()
+    {
+        String title = values[TITLE];
+        return (title == null || title.trim().length() == 0) && values[TEXT] != null ? values[TEXT] : title;
+    }
+
+    /**
+     * Returns the URL of outline from "xmlUrl" attribute or "url" when the former is missing.
+     *
+     * @return URL.
+     */
+    String getUrl()
+    {
+        return values[XML_URL] != null ? values[XML_URL] : values[URL];
+    }
+
+    /**
+     * Returns the article keys. When the list isn't given, they are taken from the
+     * packed form, if present. The keys are decoded once and kept in compact form.
+     *
+     * @param code          code of the list attribute.
+     * @param packedCode    code of the packed form attribute.
+     *
+     * @return keys or <code>NULL</code>.
+     *
+     * @see ArticleKeys#valueOfPacked(String)
+     */
+    ArticleKeys getArticleKeys(int code, int packedCode)
+    {
+        ArticleKeys keys = ArticleKeys.valueOf(values[code]);
+
+        String packed = values[packedCode];
+        if (keys == null && packed != null)
+        {
+            try
+            {
+                keys = ArticleKeys.valueOfPacked(packed);
+            } catch (IllegalArgumentException e)
+            {
+                LOG.severe("Packed keys are incorrect for: " + NAMES[packedCode] + " value: " + packed);
+            }
+        }
+
+        return keys;
+    }
+
+    /**
+     * Returns the value of integer attribute.
+     *
+     * @param code          code of attribute.
+     * @param defaultValue  value to return if attribute is missing or invalid.
+     *
+     * @return value.
+     */
+    int getInt(int code, int defaultValue)
+    {
+        int value = defaultValue;
+
+        String string = values[code];
+        if (string != null)
+        {
+            try
+            {
+                value = Integer.parseInt(string);
+            } catch (NumberFormatException e)
+            {
+                LOG.severe("Number format is incorrect for: " + NAMES[code] + " value: " + string);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the value of long attribute.
+     *
+     * @param code          code of attribute.
+     * @param defaultValue  value to return if attribute is missing or invalid.
+     *
+     * @return value.
+     */
+    long getLong(int code, long defaultValue)
+    {
+        long value = defaultValue;
+
+        String string = values[code];
+        if (string != null)
+        {
+            try
+            {
+                value = Long.parseLong(string);
+            } catch (NumberFormatException e)
+            {
+                LOG.severe("Number format is incorrect for: " + NAMES[code] + " value: " + string);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns the value of boolean attribute.
+     *
+     * @param code          code of attribute.
+     * @param defaultValue  value to return if attribute is missing.
+     *
+     * @return value.
+     */
+    boolean getBoolean(int code, boolean defaultValue)
+    {
+        String string = values[code];
+        return string == null ? defaultValue : "true".equalsIgnoreCase(string.trim());
+    }
+}
@@ -0,0 +1,92 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.FeedTable;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+
+/**
+ * Listener putting all reported feeds into the table. Each feed object is discarded
+ * right after it's added.
+ */
+final class FeedTableCollector implements OPMLImportListener
+{
+    private final FeedTable.Builder builder = new FeedTable.Builder();
+    private OPMLGuide guide;
+
+    /**
+     * Invoked when the guide starts.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideStart(OPMLGuide aGuide)
+    {
+        guide = aGuide;
+        builder.startGuide(aGuide);
+    }
+
+    /**
+     * Invoked when the feed of the current guide is found.
+     *
+     * @param feed feed.
+     */
+    public void onFeed(DefaultOPMLFeed feed)
+    {
+        builder.add(feed);
+    }
+
+    /**
+     * Invoked when the reading list of the current guide is found.
+     *
+     * @param list reading list with all its feeds.
+     */
+    public void onReadingList(OPMLReadingList list)
+    {
+        guide.add(list);
+    }
+
+    /**
+     * Invoked when the guide ends.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideEnd(OPMLGuide aGuide)
+    {
+    }
+
+    /**
+     * Returns the table of collected feeds. The root guide goes on top.
+     *
+     * @param rootGuide root guide or <code>NULL</code> if there's none.
+     *
+     * @return table.
+     */
+    FeedTable getTable(OPMLGuide rootGuide)
+    {
+        return builder.build(rootGuide);
+    }
+}
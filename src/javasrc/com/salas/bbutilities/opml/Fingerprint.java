@@ -0,0 +1,468 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fingerprints of OPML resources to skip the imports of unchanged resources. There are
+ * two kinds of them:
+ * <ul>
+ *  <li>raw fingerprints of the bytes, which tell that the resource is the same without
+ *      parsing it ({@link #ofBytes(InputStream)});</li>
+ *  <li>fingerprints of the contents, which are the same for the resources with the same
+ *      guides, feeds and reading lists no matter how they are written (attribute order,
+ *      comments, generator, modification date, formatting).</li>
+ * </ul>
+ * The fingerprint of the contents is calculated by the listener as the resource is
+ * imported, so only a digest of each guide is kept:
+ * <pre>
+ *     Fingerprint fingerprint = new Fingerprint();
+ *     importer.process(in, fingerprint);
+ *     String value = fingerprint.getValue();
+ * </pre>
+ * Already imported sets are fingerprinted with {@link #of(OPMLGuideSet)}. Both kinds of
+ * fingerprints are hexadecimal SHA-256 digests.
+ */
+public final class Fingerprint implements RootGuideListener
+{
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final int TAG_GUIDE          = 1;
+    private static final int TAG_READING_LIST   = 2;
+    private static final int TAG_DIRECT_FEED    = 3;
+    private static final int TAG_QUERY_FEED     = 4;
+    private static final int TAG_SEARCH_FEED    = 5;
+    private static final int TAG_GUIDE_END      = 6;
+
+    /** Digests of the ended guides except for the root guide. */
+    private final List<byte[]> guideDigests;
+
+    /** Digest of the guide reported now, reused for all guides except for the root guide. */
+    private final GuideDigest guide;
+
+    /** Root guide and its digest, which is kept until the end as the guide can come back. */
+    private OPMLGuide rootGuide;
+    private GuideDigest root;
+
+    /** Digest of the current guide or <code>NULL</code> when outside the guides. */
+    private GuideDigest current;
+
+    /**
+     * Creates the fingerprint of the contents to be reported.
+     */
+    public Fingerprint()
+    {
+        guideDigests = new ArrayList<byte[]>();
+        guide = new GuideDigest();
+    }
+
+    /**
+     * Calculates the fingerprint of the stream bytes. The stream is read to the end
+     * and closed.
+     *
+     * @param in stream.
+     *
+     * @return fingerprint.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    public static String ofBytes(InputStream in)
+        throws IOException
+    {
+        MessageDigest digest = createDigest();
+        try
+        {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) digest.update(buffer, 0, read);
+        } finally
+        {
+            in.close();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Calculates the fingerprint of the contents of the set. It's the same as the
+     * fingerprint calculated while the set is imported. The order of feeds relative to
+     * reading lists doesn't matter.
+     *
+     * @param set set.
+     *
+     * @return fingerprint.
+     */
+    public static String of(OPMLGuideSet set)
+    {
+        Fingerprint fingerprint = new Fingerprint();
+        for (OPMLGuide guide : set.getGuides())
+        {
+            fingerprint.onGuideStart(guide);
+            for (OPMLReadingList list : guide.getReadingLists()) fingerprint.onReadingList(list);
+            for (DefaultOPMLFeed feed : guide.getFeeds()) fingerprint.onFeed(feed);
+            fingerprint.onGuideEnd(guide);
+        }
+
+        return fingerprint.getValue();
+    }
+
+    /**
+     * Returns the fingerprint of the contents reported so far. The root guide goes first,
+     * where the imported set has it, no matter where its feeds were in the resource. The
+     * fingerprint starts anew after this call.
+     *
+     * @return fingerprint.
+     */
+    public String getValue()
+    {
+        MessageDigest digest = createDigest();
+        if (root != null) digest.update(root.finish());
+        for (byte[] guideDigest : guideDigests) digest.update(guideDigest);
+
+        guideDigests.clear();
+        guide.reset();
+        rootGuide = null;
+        root = null;
+        current = null;
+
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Invoked when the root guide is created.
+     *
+     * @param guide root guide.
+     */
+    public void onRootGuide(OPMLGuide guide)
+    {
+        rootGuide = guide;
+    }
+
+    /**
+     * Invoked when the guide starts.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideStart(OPMLGuide aGuide)
+    {
+        if (aGuide != rootGuide)
+        {
+            current = guide;
+            current.writeGuide(aGuide);
+        } else if (root == null)
+        {
+            root = new GuideDigest();
+            current = root;
+            current.writeGuide(aGuide);
+        } else
+        {
+            current = root;
+        }
+    }
+
+    /**
+     * Invoked when the feed of the current guide is found.
+     *
+     * @param feed feed.
+     */
+    public void onFeed(DefaultOPMLFeed feed)
+    {
+        try
+        {
+            writeFeed(current.feedsOut, feed);
+        } catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Invoked when the reading list of the current guide is found.
+     *
+     * @param list reading list with all its feeds.
+     */
+    public void onReadingList(OPMLReadingList list)
+    {
+        DataOutputStream out = current.listsOut;
+        try
+        {
+            out.writeByte(TAG_READING_LIST);
+            writeString(out, list.getTitle());
+            writeString(out, list.getURL());
+
+            List feeds = list.getFeeds();
+            out.writeInt(feeds.size());
+            for (Object feed : feeds) writeFeed(out, (DefaultOPMLFeed)feed);
+        } catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Invoked when the guide ends. The digest of the root guide is taken only in the end.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideEnd(OPMLGuide aGuide)
+    {
+        if (current == guide) guideDigests.add(guide.finish());
+        current = null;
+    }
+
+    /**
+     * Writes all properties of the feed.
+     *
+     * @param out   stream to write to.
+     * @param feed  feed.
+     *
+     * @throws IOException never.
+     */
+    private static void writeFeed(DataOutputStream out, DefaultOPMLFeed feed)
+        throws IOException
+    {
+        if (feed instanceof DirectOPMLFeed)
+        {
+            DirectOPMLFeed direct = (DirectOPMLFeed)feed;
+            out.writeByte(TAG_DIRECT_FEED);
+            writeString(out, direct.getXmlURL());
+            writeString(out, direct.getHtmlURL());
+            writeString(out, direct.getCustomTitle());
+            writeString(out, direct.getCustomCreator());
+            writeString(out, direct.getCustomDescription());
+            writeString(out, direct.getTags());
+            writeString(out, direct.getTagsDescription());
+            writeString(out, direct.getTagsExtended());
+            out.writeBoolean(direct.isDisabled());
+        } else if (feed instanceof QueryOPMLFeed)
+        {
+            QueryOPMLFeed query = (QueryOPMLFeed)feed;
+            out.writeByte(TAG_QUERY_FEED);
+            out.writeInt(query.getQueryType());
+            writeString(out, query.getQueryParam());
+            writeString(out, query.getXmlURL());
+            out.writeBoolean(query.isDedupEnabled());
+            out.writeInt(query.getDedupFrom());
+            out.writeInt(query.getDedupTo());
+        } else if (feed instanceof SearchOPMLFeed)
+        {
+            SearchOPMLFeed search = (SearchOPMLFeed)feed;
+            out.writeByte(TAG_SEARCH_FEED);
+            writeString(out, search.getQuery());
+            out.writeBoolean(search.isDedupEnabled());
+            out.writeInt(search.getDedupFrom());
+            out.writeInt(search.getDedupTo());
+        } else
+        {
+            throw new IllegalArgumentException("Unsupported feed: " + feed.getClass().getName());
+        }
+
+        writeString(out, feed.getTitle());
+        out.writeInt(feed.getLimit());
+        out.writeInt(feed.getRating());
+        writeString(out, feed.getReadArticlesKeys());
+        writeString(out, feed.getPinnedArticlesKeys());
+        out.writeInt(feed.getViewType());
+        out.writeBoolean(feed.isViewModeEnabled());
+        out.writeInt(feed.getViewMode());
+        Boolean ascending = feed.getAscendingSorting();
+        out.writeByte(ascending == null ? 0 : ascending ? 2 : 1);
+        out.writeInt(feed.getHandlingType());
+
+        Long period = feed instanceof DataOPMLFeed ? ((DataOPMLFeed)feed).getUpdatePeriod() : null;
+        out.writeLong(period == null ? 0 : period);
+    }
+
+    /**
+     * Writes the string, so that <code>NULL</code> and empty strings differ and the
+     * strings can't run into each other.
+     *
+     * @param out       stream to write to.
+     * @param string    string or <code>NULL</code>.
+     *
+     * @throws IOException never.
+     */
+    private static void writeString(DataOutputStream out, String string)
+        throws IOException
+    {
+        if (string == null)
+        {
+            out.writeInt(-1);
+        } else
+        {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Digest of a single guide. The feeds and the reading lists of the guide are digested
+     * separately and combined in the end, because the resource can have them in any order
+     * while the guide keeps them apart.
+     */
+    private static final class GuideDigest
+    {
+        private final MessageDigest     digest;
+        private final DataOutputStream  out;
+
+        private final MessageDigest     feedsDigest;
+        private final DataOutputStream  feedsOut;
+
+        private final MessageDigest     listsDigest;
+        private final DataOutputStream  listsOut;
+
+        /**
+         * Creates digest.
+         */
+        GuideDigest()
+        {
+            digest = createDigest();
+            out = createStream(digest);
+            feedsDigest = createDigest();
+            feedsOut = createStream(feedsDigest);
+            listsDigest = createDigest();
+            listsOut = createStream(listsDigest);
+        }
+
+        /**
+         * Writes the properties of the guide.
+         *
+         * @param guide guide.
+         */
+        void writeGuide(OPMLGuide guide)
+        {
+            try
+            {
+                out.writeByte(TAG_GUIDE);
+                writeString(out, guide.getTitle());
+                writeString(out, guide.getIcon());
+                out.writeBoolean(guide.isPublishingEnabled());
+                writeString(out, guide.getPublishingTitle());
+                writeString(out, guide.getPublishingTags());
+                out.writeBoolean(guide.isPublishingPublic());
+                out.writeInt(guide.getPublishingRating());
+                out.writeBoolean(guide.isAutoFeedsDiscovery());
+                out.writeBoolean(guide.isNotificationsAllowed());
+                out.writeBoolean(guide.isMobile());
+            } catch (IOException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Returns the digest of the guide and starts anew.
+         *
+         * @return digest.
+         */
+        byte[] finish()
+        {
+            digest.update(feedsDigest.digest());
+            digest.update(listsDigest.digest());
+            digest.update((byte)TAG_GUIDE_END);
+            return digest.digest();
+        }
+
+        /**
+         * Drops everything written so far.
+         */
+        void reset()
+        {
+            digest.reset();
+            feedsDigest.reset();
+            listsDigest.reset();
+        }
+    }
+
+    /**
+     * Creates the stream writing to the digest.
+     *
+     * @param digest digest.
+     *
+     * @return stream.
+     */
+    private static DataOutputStream createStream(MessageDigest digest)
+    {
+        return new DataOutputStream(new DigestOutputStream(new OutputStream()
+        {
+            public void write(int b)
+            {
+            }
+
+            public void write(byte[] b, int off, int len)
+            {
+            }
+        }, digest));
+    }
+
+    /**
+     * Creates the digest.
+     *
+     * @return digest.
+     */
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform has to support it
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Converts the digest to hexadecimal string.
+     *
+     * @param bytes digest.
+     *
+     * @return string.
+     */
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return hex.toString();
+    }
+}
@@ -0,0 +1,203 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.NetUtils;
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.DirectOPMLFeed;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Reports objects found by the importer to the listener. The guide is reported to the
+ * listener only when it gets its first feed or reading list, or when it ends and should
+ * be reported even if empty. The feeds from the top level of the resource go to the
+ * root guide, which is created on demand. When asked, the emitter drops direct feeds
+ * whose canonical URL's were already reported.
+ */
+final class GuideEmitter
+{
+    private final OPMLImportListener listener;
+
+    /** Canonical URL's of reported direct feeds or <code>NULL</code> to report all feeds. */
+    private final Set<String> feedURLs;
+
+    private OPMLGuide rootGuide;
+
+    private OPMLGuide guide;
+    private boolean reportEmpty;
+    private boolean started;
+
+    /**
+     * Creates emitter.
+     *
+     * @param aListener listener to report to.
+     */
+    GuideEmitter(OPMLImportListener aListener)
+    {
+        this(aListener, false);
+    }
+
+    /**
+     * Creates emitter.
+     *
+     * @param aListener             listener to report to.
+     * @param aSkipDuplicateFeeds   <code>TRUE</code> to skip direct feeds with the same URL's.
+     */
+    GuideEmitter(OPMLImportListener aListener, boolean aSkipDuplicateFeeds)
+    {
+        listener = aListener;
+        feedURLs = aSkipDuplicateFeeds ? new HashSet<String>() : null;
+    }
+
+    /**
+     * Returns the root guide.
+     *
+     * @return root guide or <code>NULL</code> if there were no feeds on the top level.
+     */
+    OPMLGuide getRootGuide()
+    {
+        return rootGuide;
+    }
+
+    /**
+     * Starts the guide. The previous guide, if any, ends.
+     *
+     * @param aGuide        guide.
+     * @param aReportEmpty  <code>TRUE</code> to report the guide even if it's empty.
+     */
+    void startGuide(OPMLGuide aGuide, boolean aReportEmpty)
+    {
+        endGuide();
+
+        guide = aGuide;
+        reportEmpty = aReportEmpty;
+        started = false;
+    }
+
+    /**
+     * Ends the current guide.
+     */
+    void endGuide()
+    {
+        if (guide != null)
+        {
+            if (reportEmpty) fireGuideStart();
+            if (started) listener.onGuideEnd(guide);
+            guide = null;
+        }
+    }
+
+    /**
+     * Reports the feed of the current guide.
+     *
+     * @param feed feed.
+     */
+    void feed(DefaultOPMLFeed feed)
+    {
+        if (isDuplicate(feed)) return;
+
+        fireFeed(feed);
+    }
+
+    /**
+     * Reports the feed from the top level of the resource. Duplicate feeds are dropped
+     * before the root guide is created, so the root guide never stays empty.
+     *
+     * @param feed      feed.
+     * @param setTitle  title of the set to use when the root guide is created.
+     */
+    void rootFeed(DefaultOPMLFeed feed, String setTitle)
+    {
+        if (isDuplicate(feed)) return;
+
+        if (rootGuide == null)
+        {
+            rootGuide = new OPMLGuide(setTitle, null, false, null, null, false, 0, false, true, false);
+            if (listener instanceof RootGuideListener) ((RootGuideListener)listener).onRootGuide(rootGuide);
+        }
+
+        if (guide != rootGuide) startGuide(rootGuide, false);
+        fireFeed(feed);
+    }
+
+    /**
+     * Reports the reading list of the current guide.
+     *
+     * @param list reading list.
+     */
+    void readingList(OPMLReadingList list)
+    {
+        fireGuideStart();
+        listener.onReadingList(list);
+    }
+
+    /**
+     * Reports the feed of the current guide, starting the guide if necessary.
+     *
+     * @param feed feed.
+     */
+    private void fireFeed(DefaultOPMLFeed feed)
+    {
+        fireGuideStart();
+        listener.onFeed(feed);
+    }
+
+    /**
+     * Reports the start of the current guide if it wasn't reported yet.
+     */
+    private void fireGuideStart()
+    {
+        if (guide != null && !started)
+        {
+            listener.onGuideStart(guide);
+            started = true;
+        }
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the feed is direct and the feed with the same URL was
+     * already reported. The URL of the feed is remembered.
+     *
+     * @param feed feed.
+     *
+     * @return <code>TRUE</code> if the feed is a duplicate.
+     */
+    private boolean isDuplicate(DefaultOPMLFeed feed)
+    {
+        boolean duplicate = false;
+
+        if (feedURLs != null && feed instanceof DirectOPMLFeed)
+        {
+            String url = NetUtils.getCanonicalURL(((DirectOPMLFeed)feed).getXmlURL());
+            duplicate = url != null && !feedURLs.add(url);
+        }
+
+        return duplicate;
+    }
+}
@@ -0,0 +1,129 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLGuideSet;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Listener collecting all reported objects into guides.
+ */
+final class GuideSetCollector implements OPMLImportListener
+{
+    private final List<OPMLGuide> guides;
+    private OPMLGuide guide;
+
+    /**
+     * Creates collector.
+     */
+    GuideSetCollector()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates collector which puts the objects reported outside of any guide into the given one.
+     *
+     * @param aGuide guide.
+     */
+    GuideSetCollector(OPMLGuide aGuide)
+    {
+        guides = new ArrayList<OPMLGuide>();
+        guide = aGuide;
+    }
+
+    /**
+     * Invoked when the guide starts.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideStart(OPMLGuide aGuide)
+    {
+        guide = aGuide;
+    }
+
+    /**
+     * Invoked when the feed of the current guide is found.
+     *
+     * @param feed feed.
+     */
+    public void onFeed(DefaultOPMLFeed feed)
+    {
+        guide.getFeeds().add(feed);
+    }
+
+    /**
+     * Invoked when the reading list of the current guide is found.
+     *
+     * @param list reading list with all its feeds.
+     */
+    public void onReadingList(OPMLReadingList list)
+    {
+        guide.add(list);
+    }
+
+    /**
+     * Invoked when the guide ends.
+     *
+     * @param aGuide guide.
+     */
+    public void onGuideEnd(OPMLGuide aGuide)
+    {
+        guides.add(aGuide);
+    }
+
+    /**
+     * Creates the set of collected guides. The root guide goes on top.
+     *
+     * @param setTitle      title of the set.
+     * @param dateModified  date of modification.
+     * @param rootGuide     root guide or <code>NULL</code> if there's none.
+     *
+     * @return the set.
+     */
+    OPMLGuideSet getGuideSet(String setTitle, Date dateModified, OPMLGuide rootGuide)
+    {
+        ArrayList<OPMLGuide> list = new ArrayList<OPMLGuide>(guides);
+        if (rootGuide != null)
+        {
+            // The root guide is reported for each sequence of top-level feeds
+            for (Iterator<OPMLGuide> it = list.iterator(); it.hasNext();)
+            {
+                if (it.next() == rootGuide) it.remove();
+            }
+
+            list.add(0, rootGuide);
+        }
+
+        return new OPMLGuideSet(setTitle, list.toArray(new OPMLGuide[list.size()]), dateModified);
+    }
+}
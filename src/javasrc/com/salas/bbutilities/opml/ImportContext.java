@@ -0,0 +1,199 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.utils.StringPool;
+import org.jdom.Namespace;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * State of a single import. Every resource (including embedded ones) is processed
+ * within its own context, which keeps the importer itself free of mutable state
+ * and safe to share between threads.
+ */
+final class ImportContext
+{
+    private final int nestingLevel;
+    private final GuideEmitter emitter;
+
+    /** Private BB namespace of the resource. */
+    private Namespace bbns;
+
+    /** Pool for repeated values shared by the whole import or <code>NULL</code>. */
+    private StringPool stringPool;
+
+    /** Permits for parallel downloads of embedded resources shared by the whole import. */
+    private Semaphore includesPermits;
+
+    /** Time when all downloads of the import have to be complete or <code>0</code>. */
+    private long includesDeadline;
+
+    /**
+     * Creates context.
+     *
+     * @param aNestingLevel nesting level of the resource.
+     * @param aEmitter      emitter to report objects to.
+     */
+    ImportContext(int aNestingLevel, GuideEmitter aEmitter)
+    {
+        nestingLevel = aNestingLevel;
+        emitter = aEmitter;
+    }
+
+    /**
+     * Creates context for the resource embedded into this one.
+     *
+     * @param aEmitter emitter to report objects of embedded resource to.
+     *
+     * @return context.
+     */
+    ImportContext nested(GuideEmitter aEmitter)
+    {
+        ImportContext context = new ImportContext(nestingLevel + 1, aEmitter);
+        context.copyImportState(this);
+        return context;
+    }
+
+    /**
+     * Creates context for the same resource reporting objects to another emitter.
+     *
+     * @param aEmitter emitter to report objects to.
+     *
+     * @return context.
+     */
+    ImportContext redirect(GuideEmitter aEmitter)
+    {
+        ImportContext context = new ImportContext(nestingLevel, aEmitter);
+        context.bbns = bbns;
+        context.copyImportState(this);
+        return context;
+    }
+
+    /**
+     * Takes the state shared by all resources of the import from the other context.
+     *
+     * @param context other context.
+     */
+    private void copyImportState(ImportContext context)
+    {
+        stringPool = context.stringPool;
+        includesPermits = context.includesPermits;
+        includesDeadline = context.includesDeadline;
+    }
+
+    /**
+     * Returns nesting level of the resource. Top-level resources fetched by URL are
+     * on the first level, resources given as strings are on zero level.
+     *
+     * @return nesting level.
+     */
+    int getNestingLevel()
+    {
+        return nestingLevel;
+    }
+
+    /**
+     * Returns emitter to report objects to.
+     *
+     * @return emitter.
+     */
+    GuideEmitter getEmitter()
+    {
+        return emitter;
+    }
+
+    /**
+     * Returns private BB namespace of the resource.
+     *
+     * @return namespace or <code>NULL</code> for old format.
+     */
+    Namespace getBbNs()
+    {
+        return bbns;
+    }
+
+    /**
+     * Sets private BB namespace of the resource.
+     *
+     * @param ns namespace or <code>NULL</code> for old format.
+     */
+    void setBbNs(Namespace ns)
+    {
+        bbns = ns;
+    }
+
+    /**
+     * Returns the pool for repeated values.
+     *
+     * @return pool or <code>NULL</code> if values aren't pooled.
+     */
+    StringPool getStringPool()
+    {
+        return stringPool;
+    }
+
+    /**
+     * Sets the pool for repeated values.
+     *
+     * @param pool pool or <code>NULL</code> to keep values as they are.
+     */
+    void setStringPool(StringPool pool)
+    {
+        stringPool = pool;
+    }
+
+    /**
+     * Returns the permits for parallel downloads of embedded resources.
+     *
+     * @return permits or <code>NULL</code> if downloads aren't parallel.
+     */
+    Semaphore getIncludesPermits()
+    {
+        return includesPermits;
+    }
+
+    /**
+     * Returns the time when all downloads of embedded resources have to be complete.
+     *
+     * @return time in ms or <code>0</code> to wait forever.
+     */
+    long getIncludesDeadline()
+    {
+        return includesDeadline;
+    }
+
+    /**
+     * Sets the limits of parallel downloads of embedded resources for the whole import.
+     *
+     * @param permits   permits for downloads.
+     * @param deadline  time in ms when all downloads have to be complete or <code>0</code> to wait forever.
+     */
+    void setIncludesLimits(Semaphore permits, long deadline)
+    {
+        includesPermits = permits;
+        includesDeadline = deadline;
+    }
+}
@@ -25,29 +25,44 @@
 package com.salas.bbutilities.opml;
 
 import com.salas.bbutilities.NetUtils;
+import com.salas.bbutilities.opml.fetch.Fetcher;
 import com.salas.bbutilities.opml.objects.*;
+import com.salas.bbutilities.opml.utils.DateCodec;
 import com.salas.bbutilities.opml.utils.EmptyEntityResolver;
-import com.salas.bbutilities.opml.utils.Transformation;
+import com.salas.bbutilities.opml.utils.StringPool;
 import org.jdom.*;
 import org.jdom.input.SAXBuilder;
+import org.xml.sax.InputSource;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Importer of OPML resources.
+ * Importer of OPML resources. Once configured, the importer can be shared between
+ * threads as all the state of a single import is kept in its own context.
  */
 public class Importer implements FormatConstants
 {
@@ -63,40 +78,186 @@ public class Importer implements FormatConstants
     static final int OUTLINE_TYPE_SEARCH_FEED   = 4;
     static final int OUTLINE_TYPE_READING_LIST  = 5;
 
-    private int currentNestingLevel;
+    /**
+     * Builders are costly to create and configure, so each thread gets its own. The parser
+     * itself isn't reused: it keeps the handler holding the last built document and would
+     * pin that document for as long as the thread lives.
+     */
+    private static final ThreadLocal<SAXBuilder> BUILDERS = new ThreadLocal<SAXBuilder>()
+    {
+        protected SAXBuilder initialValue()
+        {
+            SAXBuilder builder = new SAXBuilder(false);
+            builder.setReuseParser(false);
+
+            // Turn off DTD loading
+            builder.setEntityResolver(EmptyEntityResolver.INSTANCE);
+
+            return builder;
+        }
+    };
 
     private boolean allowEmptyGuides = false;
+    private boolean streamingMode = false;
+    private boolean skipDuplicateFeeds = false;
+    private boolean poolStrings = false;
+
+    private ExecutorService includesExecutor = null;
+    private int maxParallelIncludes = 4;
+    private long includesTimeout = 0;
 
-    /** Private BB namespace. */
-    private Namespace bbns;
+    private Fetcher fetcher = null;
+    private IncludesCache includesCache = null;
 
     /**
      * Creates importer.
      */
     public Importer()
     {
-        currentNestingLevel = 0;
     }
 
     /**
-     * Sets the namespace.
+     * Sets the state of flag showing if empty guides should be added to
+     * the list on import.
      *
-     * @param ns BB namespace.
+     * @param value TRUE to add empty guides.
      */
-    void setBbNs(Namespace ns)
+    public void setAllowEmptyGuides(boolean value)
     {
-        bbns = ns;
+        this.allowEmptyGuides = value;
     }
 
     /**
-     * Sets the state of flag showing if empty guides should be added to
-     * the list on import.
+     * Sets the state of flag showing if direct feeds with the same canonical URL's should
+     * be imported only once. The first feed is kept and the rest are skipped no matter
+     * which guides they are in.
      *
-     * @param value TRUE to add empty guides.
+     * @param value TRUE to skip duplicate feeds.
+     *
+     * @see NetUtils#getCanonicalURL(String)
      */
-    public void setAllowEmptyGuides(boolean value)
+    public void setSkipDuplicateFeeds(boolean value)
     {
-        this.allowEmptyGuides = value;
+        this.skipDuplicateFeeds = value;
+    }
+
+    /**
+     * Sets the state of flag showing if the values repeating from feed to feed (tags, home
+     * pages, creators and descriptions) should be shared. Each import gets its own pool,
+     * so a single copy of each value is kept instead of a copy per feed.
+     *
+     * @param value TRUE to share repeated values.
+     */
+    public void setPoolStrings(boolean value)
+    {
+        this.poolStrings = value;
+    }
+
+    /**
+     * Sets the state of flag showing if resources should be read with the pull-parser
+     * instead of building the whole document. In this mode only one top-level outline
+     * (guide) is kept in memory at a time, which makes a huge difference for big
+     * resources. The results are the same as in the default mode, but the
+     * {@link #preprocessDocument(Document)} hook isn't called as there's no document.
+     *
+     * @param value TRUE to read resources with the pull-parser.
+     */
+    public void setStreamingMode(boolean value)
+    {
+        this.streamingMode = value;
+    }
+
+    /**
+     * Sets the fetcher to open resources with. It allows to cache the resources which
+     * are imported or embedded repeatedly, see
+     * {@link com.salas.bbutilities.opml.fetch.CachingFetcher}. When not set
+     * (default), resources are opened directly.
+     *
+     * @param fetcher fetcher or <code>NULL</code> to open resources directly.
+     */
+    public void setFetcher(Fetcher fetcher)
+    {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Sets the cache of parsed embedded resources. The cache may be shared by importers
+     * as long as they are configured the same way. When not set (default), embedded
+     * resources are fetched and parsed every time.
+     *
+     * @param cache cache or <code>NULL</code> to parse embedded resources every time.
+     */
+    public void setIncludesCache(IncludesCache cache)
+    {
+        this.includesCache = cache;
+    }
+
+    /**
+     * Sets the executor to download embedded resources in parallel. When set, all resources
+     * embedded on the same nesting level are downloaded at once and then processed in the
+     * document order. When not set (default), resources are downloaded one after another.
+     * Note that {@link #createSourceForURL(URL)} is called from the executor threads then.
+     *
+     * @param executor executor or <code>NULL</code> to download resources sequentially.
+     *
+     * @see #createIncludesExecutor()
+     */
+    public void setIncludesExecutor(ExecutorService executor)
+    {
+        this.includesExecutor = executor;
+    }
+
+    /**
+     * Sets the maximum number of embedded resources downloaded simultaneously
+     * during a single import.
+     *
+     * @param max maximum number of downloads.
+     */
+    public void setMaxParallelIncludes(int max)
+    {
+        this.maxParallelIncludes = max;
+    }
+
+    /**
+     * Sets the maximum time to wait for all embedded resources of a single nesting level
+     * to download in parallel. Resources which don't make it in time are skipped.
+     *
+     * @param timeout time in ms or <code>0</code> to wait forever.
+     */
+    public void setIncludesTimeout(long timeout)
+    {
+        this.includesTimeout = timeout;
+    }
+
+    /**
+     * Creates the executor suitable for downloading embedded resources. It runs each
+     * download in its own virtual thread where available, and uses the pool of daemon
+     * threads otherwise.
+     *
+     * @return executor.
+     */
+    public static ExecutorService createIncludesExecutor()
+    {
+        ExecutorService executor;
+
+        try
+        {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            executor = (ExecutorService)method.invoke(null);
+        } catch (Exception e)
+        {
+            executor = Executors.newCachedThreadPool(new ThreadFactory()
+            {
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "OPML Includes");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return executor;
     }
 
     /**
@@ -113,16 +274,28 @@ public class Importer implements FormatConstants
     public OPMLGuideSet process(String urlString, boolean isSingleGuideMode)
             throws ImporterException
     {
-        final URL url;
+        return process(toURL(urlString), isSingleGuideMode);
+    }
+
+    /**
+     * Converts string into URL.
+     *
+     * @param urlString URL in string representation.
+     *
+     * @return URL.
+     *
+     * @throws ImporterException if URL is malformed.
+     */
+    private static URL toURL(String urlString)
+            throws ImporterException
+    {
         try
         {
-            url = new URL(urlString);
+            return new URL(urlString);
         } catch (MalformedURLException e)
         {
             throw ImporterException.malformedUrl(e.getMessage());
         }
-
-        return process(url, isSingleGuideMode);
     }
 
     /**
@@ -139,52 +312,265 @@ public class Importer implements FormatConstants
     public OPMLGuideSet process(URL url, boolean isSingleGuideMode)
             throws ImporterException
     {
-        OPMLGuideSet guideSet;
+        return process(url, null, isSingleGuideMode, null);
+    }
+
+    /**
+     * Process resource from the stream. The encoding is detected by the parser from
+     * the byte order mark and XML declaration. The stream is read to the end and closed.
+     *
+     * @param in                stream with the resource.
+     * @param isSingleGuideMode TRUE to process in single-guide mode.
+     *
+     * @return the set with the list of guides taken from the resource and misc attributes.
+     *         In the single-guide mode it will contain only one guide.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public OPMLGuideSet process(InputStream in, boolean isSingleGuideMode)
+            throws ImporterException
+    {
+        return process(null, createSource(in), isSingleGuideMode, null);
+    }
 
-        currentNestingLevel++;
+    /**
+     * Process resource from the local file. The file is mapped into memory and the parser
+     * reads it right from there. The encoding is detected by the parser from the byte
+     * order mark and XML declaration.
+     *
+     * @param path              path to the file.
+     * @param isSingleGuideMode TRUE to process in single-guide mode.
+     *
+     * @return the set with the list of guides taken from the resource and misc attributes.
+     *         In the single-guide mode it will contain only one guide.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public OPMLGuideSet process(Path path, boolean isSingleGuideMode)
+            throws ImporterException
+    {
+        ByteBuffer buffer;
         try
         {
-            if (currentNestingLevel <= MAX_NESTING_LEVEL)
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try
+            {
+                long size = channel.size();
+
+                // Files too big for a single mapping are read as streams
+                if (size > Integer.MAX_VALUE) return process(Files.newInputStream(path), isSingleGuideMode);
+
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally
             {
-                SAXBuilder builder = new SAXBuilder(false);
+                // The mapping stays valid when the channel is closed
+                channel.close();
+            }
+        } catch (IOException e)
+        {
+            throw ImporterException.io(e);
+        }
+
+        return process(buffer, isSingleGuideMode);
+    }
+
+    /**
+     * Process resource from the buffer. The data is taken from the position to the limit
+     * of the buffer without changing them. The encoding is detected by the parser from
+     * the byte order mark and XML declaration.
+     *
+     * @param buffer            buffer with the resource.
+     * @param isSingleGuideMode TRUE to process in single-guide mode.
+     *
+     * @return the set with the list of guides taken from the resource and misc attributes.
+     *         In the single-guide mode it will contain only one guide.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public OPMLGuideSet process(ByteBuffer buffer, boolean isSingleGuideMode)
+            throws ImporterException
+    {
+        return process(null, new InputSource(new ByteBufferInputStream(buffer)), isSingleGuideMode, null);
+    }
+
+    /**
+     * Creates context for the top-level resource. The state shared by all resources of
+     * the import starts here.
+     *
+     * @param nestingLevel  nesting level of the resource.
+     * @param emitter       emitter to report objects to.
+     *
+     * @return context.
+     */
+    private ImportContext createContext(int nestingLevel, GuideEmitter emitter)
+    {
+        ImportContext context = new ImportContext(nestingLevel, emitter);
+        if (poolStrings) context.setStringPool(new StringPool());
+        if (includesExecutor != null)
+        {
+            context.setIncludesLimits(new Semaphore(Math.max(1, maxParallelIncludes)),
+                includesTimeout > 0 ? System.currentTimeMillis() + includesTimeout : 0);
+        }
+
+        return context;
+    }
+
+    /**
+     * Process resource at the specified URL or the data which is already taken from there.
+     *
+     * @param url               URL of resource.
+     * @param source            data of resource or <code>NULL</code> to read it from the URL.
+     * @param isSingleGuideMode TRUE to process in single-guide mode.
+     * @param parent            context of the resource embedding this one or <code>NULL</code>.
+     *
+     * @return the set with the list of guides taken from the resource and misc attributes.
+     *         In the single-guide mode it will contain only one guide.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    private OPMLGuideSet process(URL url, InputSource source, boolean isSingleGuideMode,
+                                 ImportContext parent)
+            throws ImporterException
+    {
+        GuideSetCollector collector = new GuideSetCollector();
+        GuideEmitter emitter = new GuideEmitter(collector, parent == null && skipDuplicateFeeds);
+
+        Element root = read(url, source, parent == null
+            ? createContext(1, emitter)
+            : parent.nested(emitter));
+
+        OPMLGuideSet guideSet = root == null
+            ? new OPMLGuideSet(null, new OPMLGuide[0], null)
+            : collector.getGuideSet(getTitle(root), getDateModified(root), emitter.getRootGuide());
+
+        return isSingleGuideMode ? convertToSingle(guideSet) : guideSet;
+    }
+
+    /**
+     * Process resource at the specified URL and reports all guides, feeds and reading lists
+     * to the listener as they are found. Nothing is accumulated, so in the streaming mode
+     * huge resources are processed with constant memory.
+     *
+     * @param url       URL of resource.
+     * @param listener  listener to report to.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public void process(URL url, OPMLImportListener listener)
+            throws ImporterException
+    {
+        read(url, null, createContext(1, new GuideEmitter(listener, skipDuplicateFeeds)));
+    }
+
+    /**
+     * Process resource from the stream and reports all guides, feeds and reading lists
+     * to the listener as they are found. The stream is read to the end and closed.
+     *
+     * @param in        stream with the resource.
+     * @param listener  listener to report to.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public void process(InputStream in, OPMLImportListener listener)
+            throws ImporterException
+    {
+        read(null, createSource(in), createContext(1, new GuideEmitter(listener, skipDuplicateFeeds)));
+    }
+
+    /**
+     * Process resource from the URL into the table of feeds. It's the compact alternative
+     * to the guide set for very large resources.
+     *
+     * @param url URL of resource.
+     *
+     * @return table of feeds.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public FeedTable processTable(URL url)
+            throws ImporterException
+    {
+        FeedTableCollector collector = new FeedTableCollector();
+        GuideEmitter emitter = new GuideEmitter(collector, skipDuplicateFeeds);
+        read(url, null, createContext(1, emitter));
+        return collector.getTable(emitter.getRootGuide());
+    }
+
+    /**
+     * Process resource from the stream into the table of feeds. The stream is read to the end
+     * and closed.
+     *
+     * @param in stream with the resource.
+     *
+     * @return table of feeds.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    public FeedTable processTable(InputStream in)
+            throws ImporterException
+    {
+        FeedTableCollector collector = new FeedTableCollector();
+        GuideEmitter emitter = new GuideEmitter(collector, skipDuplicateFeeds);
+        read(null, createSource(in), createContext(1, emitter));
+        return collector.getTable(emitter.getRootGuide());
+    }
 
-                // Turn off DTD loading
-                builder.setEntityResolver(EmptyEntityResolver.INSTANCE);
+    /**
+     * Creates source of data for the stream given by the application.
+     *
+     * @param in stream.
+     *
+     * @return source.
+     */
+    private static InputSource createSource(InputStream in)
+    {
+        return new InputSource(in instanceof BufferedInputStream || in instanceof ByteArrayInputStream
+            ? in
+            : new BufferedInputStream(in));
+    }
 
-                Document doc;
+    /**
+     * Reads resource at the specified URL and reports the guides to the emitter.
+     *
+     * @param url       URL of resource.
+     * @param source    data of resource or <code>NULL</code> to read it from the URL.
+     * @param context   context of the resource.
+     *
+     * @return root element of the document (in the streaming mode -- its skeleton without
+     *         the body) or <code>NULL</code> if the resource is nested too deep.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    private Element read(URL url, InputSource source, ImportContext context)
+            throws ImporterException
+    {
+        Element root = null;
+
+        if (context.getNestingLevel() <= MAX_NESTING_LEVEL)
+        {
+            if (source == null)
+            {
                 try
                 {
-                    doc = builder.build(createReaderForURL(url));
-                } catch (JDOMException e)
-                {
-                    throw ImporterException.parsing(e.getMessage());
+                    source = createSourceForURL(url);
                 } catch (IOException e)
                 {
                     throw ImporterException.io(e);
                 }
+            }
 
-                preprocessDocument(doc);
-
-                final Element root = doc.getRootElement();
-                validateFormat(root);
-
-                // Lookup namespace (if NS isn't defined -- old format)
-                setBbNs(root.getNamespace(FormatConstants.BB_NS_PREFIX));
-
-                if (isSingleGuideMode)
-                {
-                    guideSet = processSingle(root);
-                } else guideSet = processMultiple(root);
-            } else
+            try
+            {
+                root = streamingMode
+                    ? readStream(source, context)
+                    : readDocument(source, context, true);
+            } finally
             {
-                guideSet = new OPMLGuideSet(null, new OPMLGuide[0], null);
+                closeQuietly(source);
             }
-        } finally
-        {
-            currentNestingLevel--;
         }
 
-        return guideSet;
+        return root;
     }
 
     /**
@@ -201,7 +587,9 @@ public class Importer implements FormatConstants
     /**
      * Creates reader to use for reading data from stream. <i>Important note: this
      * method is intentionally made public and non-static to allow subclasses override
-     * it in order to provide alternative readers.</i>
+     * it in order to provide alternative readers.</i> The importer reads raw bytes and lets
+     * the parser detect the encoding, so the readers are used only when
+     * {@link #createSourceForURL(URL)} is overridden to return them.
      *
      * @param url URL to read data from.
      *
@@ -212,7 +600,42 @@ public class Importer implements FormatConstants
     public Reader createReaderForURL(URL url)
         throws IOException
     {
-        return new InputStreamReader(url.openStream());
+        return new InputStreamReader(createStreamForURL(url));
+    }
+
+    /**
+     * Creates stream to use for reading data from URL. <i>Important note: this
+     * method is intentionally made public and non-static to allow subclasses override
+     * it in order to provide alternative streams.</i>
+     *
+     * @param url URL to read data from.
+     *
+     * @return stream object.
+     *
+     * @throws IOException if opening of stream for given URL fails.
+     */
+    public InputStream createStreamForURL(URL url)
+        throws IOException
+    {
+        return fetcher == null ? url.openStream() : fetcher.open(url);
+    }
+
+    /**
+     * Creates the source of data for URL. The default source reads the raw bytes of the
+     * stream (see {@link #createStreamForURL(URL)}) and lets the parser detect the encoding
+     * from the BOM and the XML declaration. Subclasses providing their own readers override
+     * this method to return <code>new InputSource(createReaderForURL(url))</code>.
+     *
+     * @param url URL to read data from.
+     *
+     * @return source.
+     *
+     * @throws IOException if opening of stream for given URL fails.
+     */
+    protected InputSource createSourceForURL(URL url)
+        throws IOException
+    {
+        return new InputSource(new BufferedInputStream(createStreamForURL(url)));
     }
 
     /**
@@ -229,15 +652,70 @@ public class Importer implements FormatConstants
     public OPMLGuideSet processFromString(String opml, boolean isSingleGuideMode)
             throws ImporterException
     {
-        SAXBuilder builder = new SAXBuilder(false);
+        GuideSetCollector collector = new GuideSetCollector();
+        GuideEmitter emitter = new GuideEmitter(collector, skipDuplicateFeeds);
 
-        // Turn off DTD loading
-        builder.setEntityResolver(EmptyEntityResolver.INSTANCE);
+        Element root = readString(opml, createContext(0, emitter));
 
+        OPMLGuideSet guideSet = collector.getGuideSet(getTitle(root), getDateModified(root),
+            emitter.getRootGuide());
+
+        return isSingleGuideMode ? convertToSingle(guideSet) : guideSet;
+    }
+
+    /**
+     * Process OPML XML specified as string and reports all guides, feeds and reading lists
+     * to the listener as they are found.
+     *
+     * @param opml      OPML resource.
+     * @param listener  listener to report to.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void processFromString(String opml, OPMLImportListener listener)
+            throws ImporterException
+    {
+        readString(opml, createContext(0, new GuideEmitter(listener, skipDuplicateFeeds)));
+    }
+
+    /**
+     * Reads OPML XML specified as string and reports the guides to the emitter.
+     *
+     * @param opml      OPML resource.
+     * @param context   context of the resource.
+     *
+     * @return root element of the document (in the streaming mode -- its skeleton without
+     *         the body).
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    private Element readString(String opml, ImportContext context)
+            throws ImporterException
+    {
+        InputSource source = new InputSource(new StringReader(opml));
+        return streamingMode
+            ? readStream(source, context)
+            : readDocument(source, context, false);
+    }
+
+    /**
+     * Builds the whole document and reports the guides to the emitter.
+     *
+     * @param source        source of data.
+     * @param context       context of the resource.
+     * @param preprocess    <code>TRUE</code> to let the document be pre-processed.
+     *
+     * @return root element of the document.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    private Element readDocument(InputSource source, ImportContext context, boolean preprocess)
+            throws ImporterException
+    {
         Document doc;
         try
         {
-            doc = builder.build(new StringReader(opml));
+            doc = BUILDERS.get().build(source);
         } catch (JDOMException e)
         {
             throw ImporterException.parsing(e.getMessage());
@@ -246,15 +724,35 @@ public class Importer implements FormatConstants
             throw ImporterException.io(e);
         }
 
+        if (preprocess) preprocessDocument(doc);
+
         final Element root = doc.getRootElement();
         validateFormat(root);
 
         // Lookup namespace (if NS isn't defined -- old format)
-        setBbNs(root.getNamespace(FormatConstants.BB_NS_PREFIX));
+        context.setBbNs(root.getNamespace(FormatConstants.BB_NS_PREFIX));
+
+        flattenTopLevelGuide(root, context.getBbNs());
+
+        // In ideal situation we will always have guide-outlines as first level of body.
+        // On practice we will not. So if we encounter feed-outline put it into rootGuide.
+        // If we encounter non-comment outline parse it as guide.
+        String setTitle = getTitle(root);
+        List outlines = root.getChild("body").getChildren("outline");
+        IncludesPrefetch includes = prefetchIncludes(outlines, context);
+        try
+        {
+            for (Object obj : outlines)
+            {
+                processTopLevelOutline((Element)obj, setTitle, context, includes);
+            }
+        } finally
+        {
+            if (includes != null) includes.cancel();
+        }
+        context.getEmitter().endGuide();
 
-        return isSingleGuideMode
-                ? processSingle(root)
-                : processMultiple(root);
+        return root;
     }
 
     /**
@@ -267,11 +765,7 @@ public class Importer implements FormatConstants
     private static void validateFormat(final Element root)
             throws ImporterException
     {
-        final String rootName = root.getName().toLowerCase();
-        if (!rootName.equals("opml"))
-        {
-            throw ImporterException.parsing("Not an OPML resource.");
-        }
+        validateRoot(root);
 
         // head/title and body elements should be present
         final Element body = root.getChild("body");
@@ -282,15 +776,78 @@ public class Importer implements FormatConstants
     }
 
     /**
-     * Proceses document and returns single guide which should be imported.
+     * Checks if we have OPML document judging by the root element.
      *
-     * @param root root element.
+     * @param root root element of the document.
      *
-     * @return imported guide with feeds.
+     * @throws ImporterException when this is not an OPML document.
      */
-    private OPMLGuideSet processSingle(Element root)
+    private static void validateRoot(final Element root)
+            throws ImporterException
     {
-        return convertToSingle(processMultiple(root));
+        final String rootName = root.getName().toLowerCase();
+        if (!rootName.equals("opml"))
+        {
+            throw ImporterException.parsing("Not an OPML resource.");
+        }
+    }
+
+    /**
+     * Reads the resource with the pull-parser and processes top-level outlines one by one
+     * as they come. The rules are the same as for the whole document, including the
+     * clever flattening of the single top-level guide.
+     *
+     * @param source    source of data.
+     * @param context   context of the resource.
+     *
+     * @return skeleton of the root element without the body.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    private Element readStream(InputSource source, ImportContext context)
+            throws ImporterException
+    {
+        OutlineStreamReader reader = new OutlineStreamReader(source);
+        try
+        {
+            final Element root = reader.getRoot();
+            validateRoot(root);
+
+            // Lookup namespace (if NS isn't defined -- old format)
+            context.setBbNs(root.getNamespace(FormatConstants.BB_NS_PREFIX));
+
+            Element outline = reader.nextOutline();
+            if (outline != null && !reader.hasNextOutline())
+            {
+                // The only top-level outline can be the guide wrapping all others
+                Element body = reader.getBody();
+                body.addContent(outline);
+                flattenTopLevelGuide(root, context.getBbNs());
+
+                String setTitle = getTitle(root);
+                for (Object obj : body.getChildren("outline"))
+                {
+                    processTopLevelOutline((Element)obj, setTitle, context, null);
+                }
+                body.removeContent();
+            } else
+            {
+                while (outline != null)
+                {
+                    processTopLevelOutline(outline, getTitle(root), context, null);
+                    outline = reader.nextOutline();
+                }
+            }
+            context.getEmitter().endGuide();
+
+            reader.finish();
+            validateFormat(root);
+
+            return root;
+        } finally
+        {
+            reader.close();
+        }
     }
 
     /**
@@ -356,36 +913,54 @@ public class Importer implements FormatConstants
      */
     static QueryOPMLFeed createQueryFeed(Element outline, Namespace bbns)
     {
-        String title = fetchTitle(outline);
-        String readArticles = getAttributeValue(outline, ATTR_FEED_READ_ARTICLES, bbns);
-        String pinnedArticles = getAttributeValue(outline, ATTR_FEED_PINNED_ARTICLES, bbns);
-        String parameter = getAttributeValue(outline, ATTR_FEED_QUERY_PARAM, bbns);
-        if (parameter == null) parameter = getAttributeValue(outline, "keywords", bbns);
-        String xmlURL = getAttributeValue(outline, ATTR_FEED_XML_URL, null);
+        return createQueryFeed(outline, bbns, null);
+    }
+
+    /**
+     * Returns query feed created from outline.
+     *
+     * @param outline outline element.
+     * @param bbns    BB namespace.
+     * @param pool    pool of repeated values or <code>NULL</code>.
+     *
+     * @return feed.
+     */
+    static QueryOPMLFeed createQueryFeed(Element outline, Namespace bbns, StringPool pool)
+    {
+        FeedAttributes attrs = FeedAttributes.decode(outline, bbns, pool);
 
-        int queryType = getIntAttributeValue(outline, ATTR_FEED_QUERY_TYPE, bbns, -1);
-        int purgeLimit = getIntAttributeValue(outline, ATTR_FEED_LIMIT, bbns, -1);
-        int rating = getIntAttributeValue(outline, ATTR_FEED_RATING, bbns, -1);
+        String title = attrs.getTitle();
+        ArticleKeys readArticles = attrs.getArticleKeys(FeedAttributes.READ_ARTICLES,
+            FeedAttributes.READ_ARTICLES_PACKED);
+        ArticleKeys pinnedArticles = attrs.getArticleKeys(FeedAttributes.PINNED_ARTICLES,
+            FeedAttributes.PINNED_ARTICLES_PACKED);
+        String parameter = attrs.get(FeedAttributes.QUERY_PARAM);
+        if (parameter == null) parameter = attrs.get(FeedAttributes.KEYWORDS);
+        String xmlURL = attrs.get(FeedAttributes.XML_URL);
 
-        int viewType = getIntAttributeValue(outline, ATTR_FEED_VIEW_TYPE, bbns, -1);
-        boolean viewModeEnabled = getBooleanAttributeValue(outline, ATTR_FEED_VIEW_MODE_ENABLED, bbns, false);
-        int viewMode = getIntAttributeValue(outline, ATTR_FEED_VIEW_MODE, bbns, -1);
-        int handlingType = getIntAttributeValue(outline, ATTR_FEED_HANDLING_TYPE, bbns, 0);
+        int queryType = attrs.getInt(FeedAttributes.QUERY_TYPE, -1);
+        int purgeLimit = attrs.getInt(FeedAttributes.LIMIT, -1);
+        int rating = attrs.getInt(FeedAttributes.RATING, -1);
 
-        boolean dedupEnabled = getBooleanAttributeValue(outline, ATTR_FEED_DEDUP_ENABLED, bbns, false);
-        int dedupFrom = getIntAttributeValue(outline, ATTR_FEED_DEDUP_FROM, bbns, -1);
-        int dedupTo = getIntAttributeValue(outline, ATTR_FEED_DEDUP_TO, bbns, -1);
+        int viewType = attrs.getInt(FeedAttributes.VIEW_TYPE, -1);
+        boolean viewModeEnabled = attrs.getBoolean(FeedAttributes.VIEW_MODE_ENABLED, false);
+        int viewMode = attrs.getInt(FeedAttributes.VIEW_MODE, -1);
+        int handlingType = attrs.getInt(FeedAttributes.HANDLING_TYPE, 0);
 
-        Boolean ascendingSorting = getAscendingSortingAttributeValue(outline, bbns);
+        boolean dedupEnabled = attrs.getBoolean(FeedAttributes.DEDUP_ENABLED, false);
+        int dedupFrom = attrs.getInt(FeedAttributes.DEDUP_FROM, -1);
+        int dedupTo = attrs.getInt(FeedAttributes.DEDUP_TO, -1);
+
+        Boolean ascendingSorting = getAscendingSorting(attrs);
 
         // Create a feed
-        QueryOPMLFeed feed = new QueryOPMLFeed(title, queryType, parameter, xmlURL, readArticles,
+        QueryOPMLFeed feed = QueryOPMLFeed.create(title, queryType, parameter, xmlURL, readArticles,
             pinnedArticles, purgeLimit, rating, viewType, viewModeEnabled, viewMode, ascendingSorting, handlingType);
         feed.setDedupEnabled(dedupEnabled);
         feed.setDedupFrom(dedupFrom);
         feed.setDedupTo(dedupTo);
 
-        fillUpdatePeriod(feed, outline, bbns);
+        fillUpdatePeriod(feed, attrs);
 
         return feed;
     }
@@ -394,12 +969,11 @@ public class Importer implements FormatConstants
      * Fills the update period property.
      *
      * @param feed      feed.
-     * @param outline   outline.
-     * @param bbns      BB namespace.
+     * @param attrs     attributes of the outline.
      */
-    private static void fillUpdatePeriod(DataOPMLFeed feed, Element outline, Namespace bbns)
+    private static void fillUpdatePeriod(DataOPMLFeed feed, FeedAttributes attrs)
     {
-        long p = getLongAttributeValue(outline, ATTR_FEED_UPDATE_PERIOD, bbns, -1);
+        long p = attrs.getLong(FeedAttributes.UPDATE_PERIOD, -1);
         feed.setUpdatePeriod(p > 0 ? p : null);
     }
 
@@ -413,22 +987,38 @@ public class Importer implements FormatConstants
      */
     static SearchOPMLFeed createSearchFeed(Element outline, Namespace bbns)
     {
-        String title = fetchTitle(outline);
-        String query = getAttributeValue(outline, ATTR_FEED_QUERY, bbns);
-        int purgeLimit = getIntAttributeValue(outline, ATTR_FEED_LIMIT, bbns, -1);
-        int rating = getIntAttributeValue(outline, ATTR_FEED_RATING, bbns, -1);
+        return createSearchFeed(outline, bbns, null);
+    }
+
+    /**
+     * Returns search feed created from outline.
+     *
+     * @param outline outline element.
+     * @param bbns    BB namespace.
+     * @param pool    pool of repeated values or <code>NULL</code>.
+     *
+     * @return feed.
+     */
+    static SearchOPMLFeed createSearchFeed(Element outline, Namespace bbns, StringPool pool)
+    {
+        FeedAttributes attrs = FeedAttributes.decode(outline, bbns, pool);
 
-        int viewType = getIntAttributeValue(outline, FormatConstants.ATTR_FEED_VIEW_TYPE, bbns, -1);
-        boolean viewModeEnabled = getBooleanAttributeValue(outline, ATTR_FEED_VIEW_MODE_ENABLED, bbns, false);
-        int viewMode = getIntAttributeValue(outline, ATTR_FEED_VIEW_MODE, bbns, -1);
+        String title = attrs.getTitle();
+        String query = attrs.get(FeedAttributes.QUERY);
+        int purgeLimit = attrs.getInt(FeedAttributes.LIMIT, -1);
+        int rating = attrs.getInt(FeedAttributes.RATING, -1);
 
-        int handlingType = getIntAttributeValue(outline, ATTR_FEED_HANDLING_TYPE, bbns, 0);
+        int viewType = attrs.getInt(FeedAttributes.VIEW_TYPE, -1);
+        boolean viewModeEnabled = attrs.getBoolean(FeedAttributes.VIEW_MODE_ENABLED, false);
+        int viewMode = attrs.getInt(FeedAttributes.VIEW_MODE, -1);
 
-        boolean dedupEnabled = getBooleanAttributeValue(outline, ATTR_FEED_DEDUP_ENABLED, bbns, false);
-        int dedupFrom = getIntAttributeValue(outline, ATTR_FEED_DEDUP_FROM, bbns, -1);
-        int dedupTo = getIntAttributeValue(outline, ATTR_FEED_DEDUP_TO, bbns, -1);
+        int handlingType = attrs.getInt(FeedAttributes.HANDLING_TYPE, 0);
 
-        Boolean ascendingSorting = getAscendingSortingAttributeValue(outline, bbns);
+        boolean dedupEnabled = attrs.getBoolean(FeedAttributes.DEDUP_ENABLED, false);
+        int dedupFrom = attrs.getInt(FeedAttributes.DEDUP_FROM, -1);
+        int dedupTo = attrs.getInt(FeedAttributes.DEDUP_TO, -1);
+
+        Boolean ascendingSorting = getAscendingSorting(attrs);
 
         SearchOPMLFeed feed = new SearchOPMLFeed(title, query, purgeLimit, rating, viewType, viewModeEnabled, viewMode,
             ascendingSorting, handlingType);
@@ -440,17 +1030,29 @@ public class Importer implements FormatConstants
     }
 
     /**
-     * Returns the value of the ascending sorting attribute.
+     * Returns the value of the ascending sorting attribute.
+     *
+     * @param attrs attributes of the outline.
+     *
+     * @return value.
+     */
+    private static Boolean getAscendingSorting(FeedAttributes attrs)
+    {
+        String as = attrs.get(FeedAttributes.ASCENDING_SORTING);
+        return as == null ? null : Boolean.valueOf(as);
+    }
+
+    /**
+     * Reads data from outline attributes and creates feed. Note that no validations included.
      *
-     * @param outline outline.
-     * @param bbns    namespace.
+     * @param outline outline element from the DOM.
+     * @param bbns    BB namespace.
      *
-     * @return value.
+     * @return OPML feed.
      */
-    private static Boolean getAscendingSortingAttributeValue(Element outline, Namespace bbns)
+    static DirectOPMLFeed createFeed(Element outline, Namespace bbns)
     {
-        String as = getAttributeValue(outline, ATTR_FEED_ASCENDING_SORTING, bbns);
-        return as == null ? null : Boolean.valueOf(as);
+        return createFeed(outline, bbns, null);
     }
 
     /**
@@ -458,44 +1060,49 @@ public class Importer implements FormatConstants
      *
      * @param outline outline element from the DOM.
      * @param bbns    BB namespace.
+     * @param pool    pool of repeated values or <code>NULL</code>.
      *
      * @return OPML feed.
      */
-    static DirectOPMLFeed createFeed(Element outline, Namespace bbns)
+    static DirectOPMLFeed createFeed(Element outline, Namespace bbns, StringPool pool)
     {
-        String title = fetchTitle(outline);
-        String xmlUrl = NetUtils.fixFeedURL(getOutlineUrl(outline));
-        String htmlUrl = getAttributeValue(outline, ATTR_FEED_HTML_URL, null);
-        String readArticles = getAttributeValue(outline, ATTR_FEED_READ_ARTICLES, bbns);
-        String pinnedArticles = getAttributeValue(outline, ATTR_FEED_PINNED_ARTICLES, bbns);
+        FeedAttributes attrs = FeedAttributes.decode(outline, bbns, pool);
 
-        String customTitle = getAttributeValue(outline, ATTR_FEED_CUSTOM_TITLE, bbns);
-        String customCreator = getAttributeValue(outline, ATTR_FEED_CUSTOM_CREATOR, bbns);
-        String customDescription = getAttributeValue(outline, ATTR_FEED_CUSTOM_DESCRIPTION, bbns);
-        String tags = getAttributeValue(outline, ATTR_TAGS, bbns);
-        String tagsDescription = getAttributeValue(outline, ATTR_TAGS_DESCRIPTION, bbns);
-        String tagsExtended = getAttributeValue(outline, ATTR_TAGS_EXTENDED, bbns);
+        String title = attrs.getTitle();
+        String xmlUrl = NetUtils.fixFeedURL(attrs.getUrl());
+        String htmlUrl = attrs.get(FeedAttributes.HTML_URL);
+        ArticleKeys readArticles = attrs.getArticleKeys(FeedAttributes.READ_ARTICLES,
+            FeedAttributes.READ_ARTICLES_PACKED);
+        ArticleKeys pinnedArticles = attrs.getArticleKeys(FeedAttributes.PINNED_ARTICLES,
+            FeedAttributes.PINNED_ARTICLES_PACKED);
 
-        boolean disabled = getBooleanAttributeValue(outline, ATTR_DISABLED, bbns, false);
+        String customTitle = attrs.get(FeedAttributes.CUSTOM_TITLE);
+        String customCreator = attrs.get(FeedAttributes.CUSTOM_CREATOR);
+        String customDescription = attrs.get(FeedAttributes.CUSTOM_DESCRIPTION);
+        String tags = attrs.get(FeedAttributes.TAGS);
+        String tagsDescription = attrs.get(FeedAttributes.TAGS_DESCRIPTION);
+        String tagsExtended = attrs.get(FeedAttributes.TAGS_EXTENDED);
+
+        boolean disabled = attrs.getBoolean(FeedAttributes.DISABLED, false);
 
         if (isEmpty(htmlUrl)) htmlUrl = null;
 
-        int rating = getIntAttributeValue(outline, ATTR_FEED_RATING, bbns, -1);
-        int purgeLimit = getIntAttributeValue(outline, ATTR_FEED_LIMIT, bbns, -1);
+        int rating = attrs.getInt(FeedAttributes.RATING, -1);
+        int purgeLimit = attrs.getInt(FeedAttributes.LIMIT, -1);
 
-        int viewType = getIntAttributeValue(outline, ATTR_FEED_VIEW_TYPE, bbns, -1);
-        boolean viewModeEnabled = getBooleanAttributeValue(outline, ATTR_FEED_VIEW_MODE_ENABLED, bbns, false);
-        int viewMode = getIntAttributeValue(outline, ATTR_FEED_VIEW_MODE, bbns, -1);
+        int viewType = attrs.getInt(FeedAttributes.VIEW_TYPE, -1);
+        boolean viewModeEnabled = attrs.getBoolean(FeedAttributes.VIEW_MODE_ENABLED, false);
+        int viewMode = attrs.getInt(FeedAttributes.VIEW_MODE, -1);
 
-        int handlingType = getIntAttributeValue(outline, ATTR_FEED_HANDLING_TYPE, bbns, 0);
+        int handlingType = attrs.getInt(FeedAttributes.HANDLING_TYPE, 0);
 
-        Boolean ascendingSorting = getAscendingSortingAttributeValue(outline, bbns);
+        Boolean ascendingSorting = getAscendingSorting(attrs);
 
-        DirectOPMLFeed feed = new DirectOPMLFeed(title, xmlUrl, htmlUrl, rating, readArticles, pinnedArticles,
+        DirectOPMLFeed feed = DirectOPMLFeed.create(title, xmlUrl, htmlUrl, rating, readArticles, pinnedArticles,
                 purgeLimit, customTitle, customCreator, customDescription, tags, tagsDescription, tagsExtended, disabled,
                 viewType, viewModeEnabled, viewMode, ascendingSorting, handlingType);
 
-        fillUpdatePeriod(feed, outline, bbns);
+        fillUpdatePeriod(feed, attrs);
 
         return feed;
     }
@@ -551,53 +1158,6 @@ public class Importer implements FormatConstants
         return value;
     }
 
-    /**
-     * Reads long attribute from the outline element.
-     *
-     * @param outline       outline element.
-     * @param name          name of attribute.
-     * @param bbns          BB namespace.
-     * @param defaultValue  default value to put if not found or invalid format.
-     *
-     * @return value.
-     */
-    private static long getLongAttributeValue(Element outline, String name, Namespace bbns,
-                                              long defaultValue)
-    {
-        long value = defaultValue;
-
-        String string = getAttributeValue(outline, name, bbns);
-        if (string != null)
-        {
-            try
-            {
-                value = Long.parseLong(string);
-            } catch (NumberFormatException e)
-            {
-                LOG.severe("Number format is incorrect for: " + name + " value: " + string);
-            }
-        }
-
-        return value;
-    }
-
-    /**
-     * Reads boolean attribute from the outline element.
-     *
-     * @param outline       outline element.
-     * @param name          name of attribute.
-     * @param bbns          BB namespace.
-     * @param defaultValue  default value to put if not found or invalid format.
-     *
-     * @return value.
-     */
-    private static boolean getBooleanAttributeValue(Element outline, String name, Namespace bbns,
-                                                    boolean defaultValue)
-    {
-        String string = getAttributeValue(outline, name, bbns);
-        return string == null ? defaultValue : "true".equalsIgnoreCase(string.trim());
-    }
-
     /**
      * Returns the type of outline:
      * <ul>
@@ -614,122 +1174,39 @@ public class Importer implements FormatConstants
      *
      * @return type.
      */
-    int getOutlineType(Element outline)
-    {
-        int type = -2;
-        String typeAttr = outline.getAttributeValue(ATTR_FEED_TYPE);
-        String outlineUrl = getOutlineUrl(outline);
-
-        // search feed: type=search
-        // query feed: type=rss && queryType && queryParam
-        // sub-opml: type=opml || oulineUrl.ends(.opml) || (type=link && outline.ends(.opml)) || type=include
-        // reading list: type=list
-        // rss: type=rss || oulineUrl.outlineUrl.ends(.xml)
-
-        if (typeAttr != null)
-        {
-            if ("search".equals(typeAttr))
-            {
-                type = OUTLINE_TYPE_SEARCH_FEED;
-            } else if ("list".equals(typeAttr))
-            {
-                type = OUTLINE_TYPE_READING_LIST;
-            } else if ("opml".equalsIgnoreCase(typeAttr) || "include".equalsIgnoreCase(typeAttr))
-            {
-                type = OUTLINE_TYPE_GUIDE_LINK;
-            } else if ("rss".equalsIgnoreCase(typeAttr))
-            {
-                if (hasQueryFeedAttributes(outline, bbns))
-                {
-                    type = OUTLINE_TYPE_QUERY_FEED;
-                } else if (hasURLAttribute(outline) && hasTitleAttirbute(outline))
-                {
-                    type = OUTLINE_TYPE_RSS_LINK;
-                } else type = OUTLINE_TYPE_INVALID;
-            } else if ("link".equalsIgnoreCase(typeAttr))
-            {
-                type = OUTLINE_TYPE_INVALID;
-
-                try
-                {
-                    URL url = new URL(outlineUrl);
-                    if (url.getPath().endsWith(".opml") || outlineUrl.endsWith(".opml"))
-                    {
-                        type = OUTLINE_TYPE_GUIDE_LINK;
-                    }
-                } catch (MalformedURLException e)
-                {
-                    // Nothing serious.
-                }
-
-            } else type = OUTLINE_TYPE_INVALID;
-        }
-
-        if (type == -2 && hasURLAttribute(outline))
-        {
-            if (hasTitleAttirbute(outline))
-            {
-                outlineUrl = outlineUrl.trim().toLowerCase();
-                if (outlineUrl.endsWith(".opml"))
-                {
-                    type = OUTLINE_TYPE_GUIDE_LINK;
-                } else
-                {
-                    type = OUTLINE_TYPE_RSS_LINK;
-                }
-            } else type = OUTLINE_TYPE_INVALID;
-        }
-
-        return type == -2 ? OUTLINE_TYPE_GUIDE : type;
-    }
-
-    private static boolean hasQueryFeedAttributes(Element aOutline, Namespace bbns)
+    static int getOutlineType(Element outline)
     {
-        return getAttribute(aOutline, "querytype", bbns) != null &&
-           (getAttribute(aOutline, "queryparam", bbns) != null ||
-            getAttribute(aOutline, "keywords", bbns) != null);
-    }
-
-    private static Attribute getAttribute(Element outline, String attr, Namespace ns)
-    {
-        return ns == null
-            ? outline.getAttribute(attr.toLowerCase())
-            : outline.getAttribute(attr.toLowerCase(), ns);
-    }
-
-    private static String getAttributeValue(Element outline, String attr, Namespace ns)
-    {
-        return ns == null
-            ? outline.getAttributeValue(attr.toLowerCase())
-            : outline.getAttributeValue(attr.toLowerCase(), ns);
+        return getOutlineType(outline, null);
     }
 
     /**
-     * Returns <code>TRUE</code> if outline contains either "xmlurl" or "url" attribute.
+     * Analyzes outline and returns its type.
+     *
+     * @param outline   outline to analyze.
+     * @param bbns      BB namespace.
      *
-     * @param aOutline outline.
+     * @return type.
      *
-     * @return <code>TRUE</code> if outline contains either "xmlurl" or "url" attribute.
+     * @see #getOutlineType(Element)
      */
-    private static boolean hasURLAttribute(Element aOutline)
+    private static int getOutlineType(Element outline, Namespace bbns)
     {
-        return (getAttribute(aOutline, ATTR_FEED_XML_URL, null) != null ||
-            aOutline.getAttribute("url") != null);
+        return OutlineClassifier.classify(outline, bbns);
     }
 
     /**
-     * Returns <code>TRUE</code> if outline contains either "title" or "text" attribute.
+     * Returns the value of outline attribute. The name is matched regardless of case.
      *
-     * @param aOutline outline.
+     * @param outline   outline.
+     * @param attr      name of attribute.
+     * @param ns        namespace or <code>NULL</code> for attributes without namespace.
      *
-     * @return <code>TRUE</code> if outline contains either "title" or "text" attribute.
+     * @return value or <code>NULL</code>.
      */
-    private static boolean hasTitleAttirbute(Element aOutline)
+    private static String getAttributeValue(Element outline, String attr, Namespace ns)
     {
-        String titleAttr = aOutline.getAttributeValue(ATTR_FEED_TITLE);
-        String textAttr = aOutline.getAttributeValue(ATTR_FEED_TEXT);
-
-        return titleAttr != null || textAttr != null;
+        Attribute attribute = AttributeNames.find(outline, attr, ns);
+        return attribute == null ? null : attribute.getValue();
     }
 
     /**
@@ -739,27 +1216,28 @@ public class Importer implements FormatConstants
      *
      * @return url or null.
      */
-    private static String getOutlineUrl(Element aOutline)
+    static String getOutlineUrl(Element aOutline)
     {
         String url = getAttributeValue(aOutline, ATTR_FEED_XML_URL, null);
-        if (url == null) url = aOutline.getAttributeValue("url");
+        if (url == null) url = getAttributeValue(aOutline, "url", null);
 
         return url;
     }
 
     /**
-     * Processes OPML document and returns list of guides available for import.
+     * When the body has the only guide which has sub-guides and no reading lists, it's
+     * most likely a wrapper. In this case its title becomes the title of the document
+     * and its children are moved to the top level.
      *
      * @param root root element.
-     *
-     * @return the set with the list of guides filled with feeds.
+     * @param bbns BB namespace.
      */
-    private OPMLGuideSet processMultiple(Element root)
+    private static void flattenTopLevelGuide(Element root, Namespace bbns)
     {
         Element body = root.getChild("body");
         List outlines = body.getChildren("outline");
 
-        if (outlines.size() == 1 && getOutlineType((Element)outlines.get(0)) == OUTLINE_TYPE_GUIDE)
+        if (outlines.size() == 1 && getOutlineType((Element)outlines.get(0), bbns) == OUTLINE_TYPE_GUIDE)
         {
             Element topLevelGuide = (Element)outlines.get(0);
             List children = topLevelGuide.getChildren("outline");
@@ -770,15 +1248,15 @@ public class Importer implements FormatConstants
             for (int i = 0; !readingListFound && i < children.size(); i++)
             {
                 Element element = (Element)children.get(i);
-                int outlineType = getOutlineType(element);
+                int outlineType = getOutlineType(element, bbns);
                 readingListFound = outlineType == OUTLINE_TYPE_READING_LIST;
                 subGuidesFound |= outlineType == OUTLINE_TYPE_GUIDE;
             }
 
             if (!readingListFound && subGuidesFound)
             {
-                String guideTitle = topLevelGuide.getAttributeValue("text");
-                if (guideTitle == null) guideTitle = topLevelGuide.getAttributeValue("title");
+                String guideTitle = getAttributeValue(topLevelGuide, ATTR_GUIDE_TITLE, null);
+                if (guideTitle == null) guideTitle = getAttributeValue(topLevelGuide, ATTR_FEED_TITLE, null);
 
                 if (guideTitle != null)
                 {
@@ -809,85 +1287,193 @@ public class Importer implements FormatConstants
                 body.removeContent(topLevelGuide);
             }
         }
-
-        return processMultiple2(root);
     }
 
-    private OPMLGuideSet processMultiple2(Element root)
+    /**
+     * Processes the outline from the top level of the body. Guides and guides from
+     * embedded resources are reported as they are, while feeds go to the root guide.
+     *
+     * @param outline   outline to process.
+     * @param setTitle  title of the set.
+     * @param context   context of the resource.
+     * @param includes  embedded resources downloaded in parallel or <code>NULL</code>.
+     */
+    private void processTopLevelOutline(Element outline, String setTitle, ImportContext context,
+                                        IncludesPrefetch includes)
     {
-        String setTitle = getTitle(root);
-        Date dateModified = getDateModified(root);
+        GuideEmitter emitter = context.getEmitter();
+        Namespace bbns = context.getBbNs();
 
-        final OPMLGuide rootGuide = new OPMLGuide(setTitle, null, false, null, null, false, 0, false, true, false);
+        int type = getOutlineType(outline, bbns);
 
-        // In ideal situation we will always have guide-outlines as first level of body.
-        // On practice we will not. So if we encounter feed-outline put it into rootGuide.
-        // If we encounter non-comment outline parse it as guide.
-        final List outlines = root.getChild("body").getChildren("outline");
-        ArrayList<DefaultOPMLFeed> rootFeeds = new ArrayList<DefaultOPMLFeed>();
-        ArrayList<OPMLGuide> guides = new ArrayList<OPMLGuide>();
+        switch (type)
+        {
+            case OUTLINE_TYPE_INVALID:
+                LOG.fine("[" + setTitle + "] Unrecognized OPML tag detected: " + outline);
+                break;
+            case OUTLINE_TYPE_READING_LIST:
+            case OUTLINE_TYPE_GUIDE:
+                // If normal outline parse it as guide.
+                emitter.startGuide(createGuideHeader(outline, bbns), allowEmptyGuides);
+                collectObjects(outline, context);
+                emitter.endGuide();
+                break;
+            case OUTLINE_TYPE_GUIDE_LINK:
+                // Embedded external guide.
+                try
+                {
+                    OPMLGuideSet guideSet = processInclude(outline, context, includes);
+                    for (OPMLGuide guide : guideSet.getGuides()) emitGuide(guide, emitter);
+                } catch (ImporterException e)
+                {
+                    if (LOG.isLoggable(Level.WARNING))
+                    {
+                        LOG.log(Level.WARNING, "Problem with embedding external OPML.", e);
+                    }
+                }
+                break;
+            case OUTLINE_TYPE_RSS_LINK:
+                // Simple RSS link.
+                emitter.rootFeed(createFeed(outline, bbns, context.getStringPool()), setTitle);
+                break;
+            case OUTLINE_TYPE_QUERY_FEED:
+                // Simple RSS link.
+                emitter.rootFeed(createQueryFeed(outline, bbns, context.getStringPool()), setTitle);
+                break;
+            case OUTLINE_TYPE_SEARCH_FEED:
+                // Simple RSS link.
+                emitter.rootFeed(createSearchFeed(outline, bbns, context.getStringPool()), setTitle);
+                break;
+            default:
+                LOG.severe("Invalid type (" + type + ") for outline: " + outline);
+                break;
+        }
+    }
+
+    /**
+     * Starts downloading of all embedded resources from the list of outlines in parallel,
+     * if it's enabled and these resources aren't nested too deep.
+     *
+     * @param outlines outlines of the same level.
+     * @param context  context of the resource.
+     *
+     * @return downloads or <code>NULL</code> if there's nothing to download in parallel.
+     */
+    private IncludesPrefetch prefetchIncludes(List outlines, ImportContext context)
+    {
+        if (includesExecutor == null || context.getIncludesPermits() == null ||
+            context.getNestingLevel() >= MAX_NESTING_LEVEL) return null;
+
+        IncludesPrefetch includes = new IncludesPrefetch(this, includesExecutor, context.getIncludesPermits(),
+            context.getIncludesDeadline());
         for (Object obj : outlines)
         {
-            final Element outline = (Element)obj;
-            Transformation.lowercaseAttributes(outline);
-            int type = getOutlineType(outline);
+            Element outline = (Element)obj;
+            if (getOutlineType(outline, context.getBbNs()) == OUTLINE_TYPE_GUIDE_LINK)
+            {
+                String url = getOutlineUrl(outline);
+                if (includesCache != null && includesCache.get(context.getNestingLevel() + 1, url) != null)
+                {
+                    continue;
+                }
 
-            switch (type)
+                try
+                {
+                    includes.add(outline, new URL(url));
+                } catch (MalformedURLException e)
+                {
+                    // It will be reported when the outline is processed.
+                }
+            }
+        }
+
+        return includes.isEmpty() ? null : includes;
+    }
+
+    /**
+     * Processes embedded resource in the single-guide mode.
+     *
+     * @param outline   outline with the link to the resource.
+     * @param context   context of the resource embedding this one.
+     * @param includes  embedded resources downloaded in parallel or <code>NULL</code>.
+     *
+     * @return the set with the guide taken from the resource.
+     *
+     * @throws ImporterException in case of different errors.
+     */
+    private OPMLGuideSet processInclude(Element outline, ImportContext context,
+                                        IncludesPrefetch includes)
+            throws ImporterException
+    {
+        InputSource source = includes == null ? null : includes.get(outline);
+        URL url = source == null ? toURL(getOutlineUrl(outline)) : null;
+
+        int level = context.getNestingLevel() + 1;
+        if (includesCache == null || level > MAX_NESTING_LEVEL) return process(url, source, true, context);
+
+        String urlString = getOutlineUrl(outline);
+        OPMLGuideSet guideSet = includesCache.get(level, urlString);
+        if (guideSet == null)
+        {
+            ResourceData data;
+            try
             {
-                case OUTLINE_TYPE_INVALID:
-                    LOG.fine("[" + setTitle + "] Unrecognized OPML tag detected: " + outline);
-                    break;
-                case OUTLINE_TYPE_READING_LIST:
-                case OUTLINE_TYPE_GUIDE:
-                    // If normal outline parse it as guide.
-                    OPMLGuide guide = createGuide(outline);
-                    if (allowEmptyGuides || guide.getFeeds().size() > 0 ||
-                            guide.getReadingLists().length > 0)
-                    {
-                        guides.add(guide);
-                    }
-                    break;
-                case OUTLINE_TYPE_GUIDE_LINK:
-                    // Embedded external guide.
-                    try
-                    {
-                        OPMLGuideSet guideSet = process(getOutlineUrl(outline), true);
-                        guides.addAll(Arrays.asList(guideSet.getGuides()));
-                    } catch (ImporterException e)
-                    {
-                        if (LOG.isLoggable(Level.WARNING))
-                        {
-                            LOG.log(Level.WARNING, "Problem with embedding external OPML.", e);
-                        }
-                    }
-                    break;
-                case OUTLINE_TYPE_RSS_LINK:
-                    // Simple RSS link.
-                    rootFeeds.add(createFeed(outline, bbns));
-                    break;
-                case OUTLINE_TYPE_QUERY_FEED:
-                    // Simple RSS link.
-                    rootFeeds.add(createQueryFeed(outline, bbns));
-                    break;
-                case OUTLINE_TYPE_SEARCH_FEED:
-                    // Simple RSS link.
-                    rootFeeds.add(createSearchFeed(outline, bbns));
-                    break;
-                default:
-                    LOG.severe("Invalid type (" + type + ") for outline: " + outline);
-                    break;
+                data = ResourceData.read(source == null ? createSourceForURL(url) : source);
+            } catch (IOException e)
+            {
+                throw ImporterException.io(e);
+            }
+
+            byte[] hash = data.hash();
+            guideSet = includesCache.get(level, urlString, hash);
+            if (guideSet == null)
+            {
+                guideSet = process(url, data.toSource(), true, context);
+                includesCache.put(level, urlString, hash, guideSet);
             }
+        } else if (source != null)
+        {
+            closeQuietly(source);
         }
 
-        // If root guide has some feeds or reading lists put it on top of the list
-        rootGuide.setFeeds(rootFeeds);
-        if (rootGuide.getFeeds().size() > 0 || rootGuide.getReadingLists().length > 0)
+        return guideSet;
+    }
+
+    /**
+     * Closes the source of data ignoring errors.
+     *
+     * @param source source.
+     */
+    private static void closeQuietly(InputSource source)
+    {
+        try
+        {
+            if (source.getByteStream() != null) source.getByteStream().close();
+            if (source.getCharacterStream() != null) source.getCharacterStream().close();
+        } catch (IOException e)
         {
-            guides.add(0, rootGuide);
+            // Nothing to do here.
         }
+    }
+
+    /**
+     * Reports the guide which is already imported to the emitter. The guide is reported
+     * even if it's empty.
+     *
+     * @param guide     guide.
+     * @param emitter   emitter to report to.
+     */
+    private static void emitGuide(OPMLGuide guide, GuideEmitter emitter)
+    {
+        emitter.startGuide(new OPMLGuide(guide.getTitle(), guide.getIcon(), guide.isPublishingEnabled(),
+            guide.getPublishingTitle(), guide.getPublishingTags(), guide.isPublishingPublic(),
+            guide.getPublishingRating(), guide.isAutoFeedsDiscovery(), guide.isNotificationsAllowed(),
+            guide.isMobile()), true);
+
+        for (OPMLReadingList list : guide.getReadingLists()) emitter.readingList(list);
+        for (DefaultOPMLFeed feed : guide.getFeeds()) emitter.feed(feed);
 
-        OPMLGuide[] opmlGuides = guides.toArray(new OPMLGuide[guides.size()]);
-        return new OPMLGuideSet(setTitle, opmlGuides, dateModified);
+        emitter.endGuide();
     }
 
     /**
@@ -930,7 +1516,7 @@ public class Importer implements FormatConstants
             {
                 try
                 {
-                    date = new SimpleDateFormat(DATE_FORMAT).parse(dateModifiedS);
+                    date = DateCodec.parse(dateModifiedS);
                 } catch (ParseException e)
                 {
                     date = null;
@@ -950,6 +1536,40 @@ public class Importer implements FormatConstants
      * @return guide.
      */
     OPMLGuide createGuide(Element outline)
+    {
+        return createGuide(outline, null);
+    }
+
+    /**
+     * Parses give outline in order to create guide from it. Takes information from attributes
+     * to define the guide and information from children to define feeds.
+     *
+     * @param outline element to start with.
+     * @param bbns    BB namespace.
+     *
+     * @return guide.
+     */
+    OPMLGuide createGuide(Element outline, Namespace bbns)
+    {
+        final OPMLGuide guide = createGuideHeader(outline, bbns);
+
+        guide.setFeeds(new ArrayList<DefaultOPMLFeed>());
+        ImportContext context = createContext(0, new GuideEmitter(new GuideSetCollector(guide)));
+        context.setBbNs(bbns);
+        collectObjects(outline, context);
+
+        return guide;
+    }
+
+    /**
+     * Creates the guide from the outline attributes only. Children aren't analyzed.
+     *
+     * @param outline guide outline.
+     * @param bbns    BB namespace.
+     *
+     * @return guide without feeds.
+     */
+    private static OPMLGuide createGuideHeader(Element outline, Namespace bbns)
     {
         String title = fetchTitle(outline);
         if (title == null) title = "untitled";
@@ -957,7 +1577,7 @@ public class Importer implements FormatConstants
         String icon = getAttributeValue(outline, ATTR_GUIDE_ICON, bbns);
         if (isEmpty(icon)) icon = null;
 
-        final OPMLGuide guide = new OPMLGuide(title, icon,
+        return new OPMLGuide(title, icon,
             "true".equals(getAttributeValue(outline, ATTR_GUIDE_PUB_ENABLED, bbns)),
             getAttributeValue(outline, ATTR_GUIDE_PUB_TITLE, bbns),
             getAttributeValue(outline, ATTR_GUIDE_PUB_TAGS, bbns),
@@ -966,11 +1586,6 @@ public class Importer implements FormatConstants
             "true".equals(getAttributeValue(outline, ATTR_GUIDE_AUTO_FEEDS_DISCOVERY, bbns)),
             "true".equals(getAttributeValue(outline, ATTR_GUIDE_NOTIFICATIONS_ALLOWED, bbns)),
             "true".equals(getAttributeValue(outline, ATTR_GUIDE_MOBILE, bbns)));
-
-        guide.setFeeds(new ArrayList<DefaultOPMLFeed>());
-        collectObjects(outline, guide);
-
-        return guide;
     }
 
     /**
@@ -993,13 +1608,44 @@ public class Importer implements FormatConstants
      */
     void collectObjects(Element element, OPMLGuide guide)
     {
-        List<DefaultOPMLFeed> feedsArray = guide.getFeeds();
+        collectObjects(element, createContext(0, new GuideEmitter(new GuideSetCollector(guide))));
+    }
+
+    /**
+     * Recusively collects feed outlines and reading lists.
+     *
+     * @param element       element to start from.
+     * @param context       context of the resource.
+     */
+    private void collectObjects(Element element, ImportContext context)
+    {
         List outlines = element.getChildren("outline");
+        IncludesPrefetch includes = prefetchIncludes(outlines, context);
+        try
+        {
+            collectObjects(outlines, context, includes);
+        } finally
+        {
+            if (includes != null) includes.cancel();
+        }
+    }
+
+    /**
+     * Collects feed outlines and reading lists from the list of outlines.
+     *
+     * @param outlines      outlines.
+     * @param context       context of the resource.
+     * @param includes      embedded resources downloaded in parallel or <code>NULL</code>.
+     */
+    private void collectObjects(List outlines, ImportContext context, IncludesPrefetch includes)
+    {
+        GuideEmitter emitter = context.getEmitter();
+        Namespace bbns = context.getBbNs();
+
         for (Object obj : outlines)
         {
             Element outline = (Element)obj;
-            Transformation.lowercaseAttributes(outline);
-            int type = getOutlineType(outline);
+            int type = getOutlineType(outline, bbns);
 
             switch (type)
             {
@@ -1008,20 +1654,20 @@ public class Importer implements FormatConstants
                     break;
                 case OUTLINE_TYPE_GUIDE:
                     // If normal outline parse it as guide.
-                    collectObjects(outline, guide);
+                    collectObjects(outline, context);
                     break;
                 case OUTLINE_TYPE_READING_LIST:
-                    parseReadingList(outline, guide);
+                    parseReadingList(outline, context);
                     break;
                 case OUTLINE_TYPE_GUIDE_LINK:
                     // Embedded external guide.
                     try
                     {
-                        OPMLGuideSet guideSet = process(getOutlineUrl(outline), true);
+                        OPMLGuideSet guideSet = processInclude(outline, context, includes);
                         OPMLGuide[] embeddedGuides = guideSet.getGuides();
                         if (embeddedGuides.length > 0)
                         {
-                            feedsArray.addAll(embeddedGuides[0].getFeeds());
+                            for (DefaultOPMLFeed feed : embeddedGuides[0].getFeeds()) emitter.feed(feed);
                         }
                     } catch (ImporterException e)
                     {
@@ -1033,15 +1679,15 @@ public class Importer implements FormatConstants
                     break;
                 case OUTLINE_TYPE_RSS_LINK:
                     // Simple RSS link.
-                    feedsArray.add(createFeed(outline, bbns));
+                    emitter.feed(createFeed(outline, bbns, context.getStringPool()));
                     break;
                 case OUTLINE_TYPE_QUERY_FEED:
                     // Simple RSS link.
-                    feedsArray.add(createQueryFeed(outline, bbns));
+                    emitter.feed(createQueryFeed(outline, bbns, context.getStringPool()));
                     break;
                 case OUTLINE_TYPE_SEARCH_FEED:
                     // Simple RSS link.
-                    feedsArray.add(createSearchFeed(outline, bbns));
+                    emitter.feed(createSearchFeed(outline, bbns, context.getStringPool()));
                     break;
                 default:
                     LOG.severe("Invalid type (" + type + ") for outline: " + outline);
@@ -1057,6 +1703,17 @@ public class Importer implements FormatConstants
      * @param guide     guide object to add reading list to.
      */
     void parseReadingList(Element outline, OPMLGuide guide)
+    {
+        parseReadingList(outline, createContext(0, new GuideEmitter(new GuideSetCollector(guide))));
+    }
+
+    /**
+     * Parses reading list outline.
+     *
+     * @param outline   outline.
+     * @param context   context of the resource.
+     */
+    private void parseReadingList(Element outline, ImportContext context)
     {
         String title = getAttributeValue(outline, ATTR_READING_LIST_TITLE, null);
         String url = getAttributeValue(outline, ATTR_READING_LIST_URL, null);
@@ -1067,7 +1724,7 @@ public class Importer implements FormatConstants
 
             // Collect feeds and place them into the list
             OPMLGuide temp = new OPMLGuide("", "", false, null, null, false, 0, false, false, false);
-            collectObjects(outline, temp);
+            collectObjects(outline, context.redirect(new GuideEmitter(new GuideSetCollector(temp))));
 
             List<DefaultOPMLFeed> feeds = temp.getFeeds();
             List<DirectOPMLFeed> dfeeds = new ArrayList<DirectOPMLFeed>(feeds.size());
@@ -1077,7 +1734,7 @@ public class Importer implements FormatConstants
             }
             list.setFeeds(dfeeds);
 
-            guide.add(list);
+            context.getEmitter().readingList(list);
         }
     }
 }
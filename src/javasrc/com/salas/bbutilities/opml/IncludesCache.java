@@ -0,0 +1,170 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.OPMLGuideSet;
+
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of parsed embedded resources. It can be shared by importers (see
+ * {@link Importer#setIncludesCache(IncludesCache)}) to avoid parsing the same
+ * embedded resource over and over again, within one import and between imports.
+ * <p/>
+ * While the entry is fresh, the resource isn't even fetched. When it gets stale, the
+ * resource is fetched again, but parsed only if the hash of the data has changed.
+ * The feeds and reading lists of cached results are shared by all imports and
+ * should not be modified.
+ */
+public final class IncludesCache
+{
+    private final int maxEntries;
+    private final long timeToLive;
+    private final Map<String, Entry> entries;
+
+    /**
+     * Creates cache.
+     *
+     * @param aMaxEntries   maximum number of entries. Least recently used ones are evicted.
+     * @param aTimeToLive   time in ms the entry stays fresh, or <code>0</code> to check
+     *                      the data every time.
+     */
+    public IncludesCache(int aMaxEntries, long aTimeToLive)
+    {
+        maxEntries = aMaxEntries;
+        timeToLive = aTimeToLive;
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    /**
+     * Returns the result cached for the resource if it's still fresh.
+     *
+     * @param level nesting level of the resource.
+     * @param url   URL of the resource.
+     *
+     * @return result or <code>NULL</code>.
+     */
+    synchronized OPMLGuideSet get(int level, String url)
+    {
+        Entry entry = entries.get(key(level, url));
+        return entry == null || entry.expires <= System.currentTimeMillis() ? null : entry.guideSet;
+    }
+
+    /**
+     * Returns the result cached for the resource if it was taken from the same data.
+     * The entry becomes fresh again then.
+     *
+     * @param level nesting level of the resource.
+     * @param url   URL of the resource.
+     * @param hash  hash of the data.
+     *
+     * @return result or <code>NULL</code>.
+     */
+    synchronized OPMLGuideSet get(int level, String url, byte[] hash)
+    {
+        Entry entry = entries.get(key(level, url));
+        if (entry == null || !MessageDigest.isEqual(entry.hash, hash)) return null;
+
+        entry.expires = System.currentTimeMillis() + timeToLive;
+        return entry.guideSet;
+    }
+
+    /**
+     * Puts the result for the resource.
+     *
+     * @param level     nesting level of the resource.
+     * @param url       URL of the resource.
+     * @param hash      hash of the data.
+     * @param guideSet  result of parsing.
+     */
+    synchronized void put(int level, String url, byte[] hash, OPMLGuideSet guideSet)
+    {
+        entries.put(key(level, url), new Entry(hash, guideSet, System.currentTimeMillis() + timeToLive));
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return entries.
+     */
+    synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Creates the key for the resource. The same resource gives different results on
+     * different nesting levels, as the resources it embeds may be too deep to follow.
+     *
+     * @param level nesting level of the resource.
+     * @param url   URL of the resource.
+     *
+     * @return key.
+     */
+    private static String key(int level, String url)
+    {
+        return level + ":" + url;
+    }
+
+    /**
+     * Cached result.
+     */
+    private static class Entry
+    {
+        private final byte[] hash;
+        private final OPMLGuideSet guideSet;
+        private long expires;
+
+        /**
+         * Creates entry.
+         *
+         * @param aHash     hash of the data.
+         * @param aGuideSet result of parsing.
+         * @param aExpires  time the entry gets stale.
+         */
+        Entry(byte[] aHash, OPMLGuideSet aGuideSet, long aExpires)
+        {
+            hash = aHash;
+            guideSet = aGuideSet;
+            expires = aExpires;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import org.jdom.Element;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads embedded resources found on the same nesting level in parallel. Only the
+ * downloading happens in the background, while the parsing is left to the importer
+ * which takes the data in the document order. All prefetches of the import share the
+ * permits and the deadline, so the limits hold for the import as a whole.
+ */
+final class IncludesPrefetch
+{
+    private final Importer importer;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long deadline;
+
+    private final Map<Element, Future<ResourceData>> downloads;
+    private final Map<String, Future<ResourceData>> downloadsByURL;
+
+    /**
+     * Creates prefetch.
+     *
+     * @param aImporter     importer to open resources with.
+     * @param aExecutor     executor to run downloads.
+     * @param aPermits      permits for simultaneous downloads of the import.
+     * @param aDeadline     time in ms when all downloads of the import have to be complete
+     *                      or <code>0</code> to wait forever.
+     */
+    IncludesPrefetch(Importer aImporter, ExecutorService aExecutor, Semaphore aPermits, long aDeadline)
+    {
+        importer = aImporter;
+        executor = aExecutor;
+        permits = aPermits;
+        deadline = aDeadline;
+
+        downloads = new IdentityHashMap<Element, Future<ResourceData>>();
+        downloadsByURL = new HashMap<String, Future<ResourceData>>();
+    }
+
+    /**
+     * Schedules the download of the resource from the outline. The resource which is
+     * embedded several times is downloaded once.
+     *
+     * @param outline   outline.
+     * @param url       URL of the resource.
+     */
+    void add(Element outline, final URL url)
+    {
+        Future<ResourceData> download = downloadsByURL.get(url.toString());
+        if (download == null)
+        {
+            download = submit(url);
+            downloadsByURL.put(url.toString(), download);
+        }
+
+        downloads.put(outline, download);
+    }
+
+    /**
+     * Submits the download of the resource.
+     *
+     * @param url URL of the resource.
+     *
+     * @return download.
+     */
+    private Future<ResourceData> submit(final URL url)
+    {
+        return executor.submit(new Callable<ResourceData>()
+        {
+            public ResourceData call() throws Exception
+            {
+                permits.acquire();
+                try
+                {
+                    return download(url);
+                } finally
+                {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns <code>TRUE</code> if there's nothing to download.
+     *
+     * @return <code>TRUE</code> if there's nothing to download.
+     */
+    boolean isEmpty()
+    {
+        return downloads.isEmpty();
+    }
+
+    /**
+     * Waits for the download of the resource from the outline and returns its data.
+     *
+     * @param outline outline.
+     *
+     * @return source or <code>NULL</code> if the resource wasn't scheduled for download.
+     *
+     * @throws ImporterException if download failed or took too long.
+     */
+    InputSource get(Element outline)
+        throws ImporterException
+    {
+        Future<ResourceData> download = downloads.remove(outline);
+        if (download == null) return null;
+
+        try
+        {
+            ResourceData data;
+            if (deadline == 0)
+            {
+                data = download.get();
+            } else
+            {
+                data = download.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+
+            return data.toSource();
+        } catch (TimeoutException e)
+        {
+            download.cancel(true);
+            throw ImporterException.io(new IOException("Timed out downloading embedded resource."));
+        } catch (InterruptedException e)
+        {
+            download.cancel(true);
+            Thread.currentThread().interrupt();
+            throw ImporterException.io(new InterruptedIOException("Interrupted downloading embedded resource."));
+        } catch (CancellationException e)
+        {
+            throw ImporterException.io(new IOException("Download of embedded resource was cancelled."));
+        } catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            IOException ioe = cause instanceof IOException ? (IOException)cause : new IOException(cause.getMessage());
+            throw ImporterException.io(ioe);
+        }
+    }
+
+    /**
+     * Cancels all downloads which weren't taken.
+     */
+    void cancel()
+    {
+        for (Future<ResourceData> download : downloads.values()) download.cancel(true);
+        downloads.clear();
+        downloadsByURL.clear();
+    }
+
+    /**
+     * Reads all data from the resource.
+     *
+     * @param url URL of the resource.
+     *
+     * @return data.
+     *
+     * @throws IOException if reading fails.
+     */
+    private ResourceData download(URL url)
+        throws IOException
+    {
+        return ResourceData.read(importer.createSourceForURL(url));
+    }
+}
@@ -0,0 +1,71 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+
+/**
+ * Listener of import events. The importer reports guides, feeds and reading lists as they
+ * are found in the resource, without accumulating them. Feeds and reading lists are always
+ * reported between <code>onGuideStart</code> and <code>onGuideEnd</code> of the guide they
+ * belong to.
+ * <p/>
+ * The guides come without feeds and reading lists. Empty guides are reported only when the
+ * importer is allowed to import empty guides. The feeds found on the top level of the resource
+ * are reported as the feeds of the root guide, which is reported as many times as there are
+ * sequences of such feeds between other guides.
+ */
+public interface OPMLImportListener
+{
+    /**
+     * Invoked when the guide starts.
+     *
+     * @param guide guide.
+     */
+    void onGuideStart(OPMLGuide guide);
+
+    /**
+     * Invoked when the feed of the current guide is found.
+     *
+     * @param feed feed.
+     */
+    void onFeed(DefaultOPMLFeed feed);
+
+    /**
+     * Invoked when the reading list of the current guide is found.
+     *
+     * @param list reading list with all its feeds.
+     */
+    void onReadingList(OPMLReadingList list);
+
+    /**
+     * Invoked when the guide ends.
+     *
+     * @param guide guide.
+     */
+    void onGuideEnd(OPMLGuide guide);
+}
@@ -0,0 +1,204 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.FormatConstants;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+/**
+ * Classifier of outlines. It decides on the type by looking at the raw attribute values
+ * and creates no objects on the way except for rare links which really point to OPML
+ * resources and have to be validated as URL's.
+ */
+final class OutlineClassifier implements FormatConstants
+{
+    /** Suffix of OPML resource addresses. */
+    private static final String OPML_SUFFIX = ".opml";
+
+    /**
+     * Hidden utility class constructor.
+     */
+    private OutlineClassifier()
+    {
+    }
+
+    /**
+     * Analyzes outline and returns its type.
+     *
+     * @param outline   outline to analyze.
+     * @param bbns      BB namespace.
+     *
+     * @return type.
+     *
+     * @see Importer#getOutlineType(Element)
+     */
+    static int classify(Element outline, Namespace bbns)
+    {
+        String typeAttr = getValue(outline, ATTR_FEED_TYPE, null);
+        String outlineUrl = Importer.getOutlineUrl(outline);
+
+        // search feed: type=search
+        // query feed: type=rss && queryType && queryParam
+        // sub-opml: type=opml || oulineUrl.ends(.opml) || (type=link && outline.ends(.opml)) || type=include
+        // reading list: type=list
+        // rss: type=rss || oulineUrl.outlineUrl.ends(.xml)
+
+        int type;
+        if (typeAttr != null)
+        {
+            if ("search".equals(typeAttr))
+            {
+                type = Importer.OUTLINE_TYPE_SEARCH_FEED;
+            } else if ("list".equals(typeAttr))
+            {
+                type = Importer.OUTLINE_TYPE_READING_LIST;
+            } else if ("opml".equalsIgnoreCase(typeAttr) || "include".equalsIgnoreCase(typeAttr))
+            {
+                type = Importer.OUTLINE_TYPE_GUIDE_LINK;
+            } else if ("rss".equalsIgnoreCase(typeAttr))
+            {
+                if (hasQueryFeedAttributes(outline, bbns))
+                {
+                    type = Importer.OUTLINE_TYPE_QUERY_FEED;
+                } else if (outlineUrl != null && hasTitleAttribute(outline))
+                {
+                    type = Importer.OUTLINE_TYPE_RSS_LINK;
+                } else type = Importer.OUTLINE_TYPE_INVALID;
+            } else if ("link".equalsIgnoreCase(typeAttr))
+            {
+                type = isOPMLLink(outlineUrl)
+                    ? Importer.OUTLINE_TYPE_GUIDE_LINK
+                    : Importer.OUTLINE_TYPE_INVALID;
+            } else type = Importer.OUTLINE_TYPE_INVALID;
+        } else if (outlineUrl != null)
+        {
+            if (hasTitleAttribute(outline))
+            {
+                type = endsWithIgnoreCaseTrimmed(outlineUrl, OPML_SUFFIX)
+                    ? Importer.OUTLINE_TYPE_GUIDE_LINK
+                    : Importer.OUTLINE_TYPE_RSS_LINK;
+            } else type = Importer.OUTLINE_TYPE_INVALID;
+        } else type = Importer.OUTLINE_TYPE_GUIDE;
+
+        return type;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the address of outline with "link" type is a valid URL
+     * pointing to OPML resource. The path of URL is a part of the address and can't end
+     * with the suffix if the address doesn't have it, so the URL is created only for
+     * the addresses having it.
+     *
+     * @param outlineUrl address.
+     *
+     * @return <code>TRUE</code> if the address points to OPML resource.
+     */
+    static boolean isOPMLLink(String outlineUrl)
+    {
+        boolean opml = false;
+
+        if (outlineUrl != null && outlineUrl.indexOf(OPML_SUFFIX) != -1)
+        {
+            try
+            {
+                URL url = new URL(outlineUrl);
+                opml = url.getPath().endsWith(OPML_SUFFIX) || outlineUrl.endsWith(OPML_SUFFIX);
+            } catch (MalformedURLException e)
+            {
+                // Nothing serious.
+            }
+        }
+
+        return opml;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the string without leading and trailing whitespace
+     * ends with the suffix in any case.
+     *
+     * @param string    string.
+     * @param suffix    suffix.
+     *
+     * @return <code>TRUE</code> if the string ends with the suffix.
+     */
+    static boolean endsWithIgnoreCaseTrimmed(String string, String suffix)
+    {
+        int start = 0;
+        int end = string.length();
+        while (start < end && string.charAt(start) <= ' ') start++;
+        while (end > start && string.charAt(end - 1) <= ' ') end--;
+
+        int offset = end - suffix.length();
+        return offset >= start && string.regionMatches(true, offset, suffix, 0, suffix.length());
+    }
+
+    /**
+     * Returns <code>TRUE</code> if outline has the attributes of query feed.
+     *
+     * @param outline   outline.
+     * @param bbns      BB namespace.
+     *
+     * @return <code>TRUE</code> if outline has the attributes of query feed.
+     */
+    private static boolean hasQueryFeedAttributes(Element outline, Namespace bbns)
+    {
+        return AttributeNames.find(outline, ATTR_FEED_QUERY_TYPE, bbns) != null &&
+           (AttributeNames.find(outline, ATTR_FEED_QUERY_PARAM, bbns) != null ||
+            AttributeNames.find(outline, "keywords", bbns) != null);
+    }
+
+    /**
+     * Returns <code>TRUE</code> if outline contains either "title" or "text" attribute.
+     *
+     * @param outline outline.
+     *
+     * @return <code>TRUE</code> if outline contains either "title" or "text" attribute.
+     */
+    private static boolean hasTitleAttribute(Element outline)
+    {
+        return AttributeNames.find(outline, ATTR_FEED_TITLE, null) != null ||
+            AttributeNames.find(outline, ATTR_FEED_TEXT, null) != null;
+    }
+
+    /**
+     * Returns the value of attribute.
+     *
+     * @param outline   outline.
+     * @param name      name of attribute.
+     * @param ns        namespace or <code>NULL</code>.
+     *
+     * @return value or <code>NULL</code>.
+     */
+    private static String getValue(Element outline, String name, Namespace ns)
+    {
+        Attribute attribute = AttributeNames.find(outline, name, ns);
+        return attribute == null ? null : attribute.getValue();
+    }
+}
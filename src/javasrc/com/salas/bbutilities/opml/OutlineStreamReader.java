@@ -0,0 +1,341 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.FormatConstants;
+import com.salas.bbutilities.opml.utils.EmptyEntityResolver;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.Text;
+import org.xml.sax.InputSource;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+
+/**
+ * Forward-only reader of OPML resources built on top of the pull-parser. Instead of
+ * building the whole document, it collects everything outside the body into the skeleton
+ * root element and hands top-level body outlines over one by one as detached elements.
+ * This way only a single top-level outline (guide) is kept in memory at any given time.
+ */
+final class OutlineStreamReader implements FormatConstants, XMLStreamConstants
+{
+    private static final XMLInputFactory FACTORY;
+
+    private final XMLStreamReader reader;
+    private final Element root;
+
+    private Element body;
+    private boolean inBody;
+    private boolean finished;
+    private boolean positioned;
+
+    static
+    {
+        FACTORY = XMLInputFactory.newInstance();
+        FACTORY.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+
+        // Turn off DTD loading
+        FACTORY.setXMLResolver(EmptyEntityResolver.INSTANCE);
+    }
+
+    /**
+     * Creates the reader and reads the document up to the root element.
+     *
+     * @param aSource source of data. When it's the byte stream, the encoding is detected
+     *                by the parser.
+     *
+     * @throws ImporterException if the document is not well-formed or can't be read.
+     */
+    OutlineStreamReader(InputSource aSource)
+        throws ImporterException
+    {
+        try
+        {
+            reader = aSource.getByteStream() != null
+                ? FACTORY.createXMLStreamReader(aSource.getByteStream())
+                : FACTORY.createXMLStreamReader(aSource.getCharacterStream());
+
+            int event;
+            while ((event = reader.next()) != START_ELEMENT)
+            {
+                if (event == END_DOCUMENT) throw ImporterException.parsing("Not an OPML resource.");
+            }
+
+            root = createElement();
+            for (int i = 0; i < reader.getNamespaceCount(); i++)
+            {
+                String prefix = reader.getNamespacePrefix(i);
+                if (prefix != null && prefix.length() > 0 && !prefix.equals(root.getNamespacePrefix()))
+                {
+                    root.addNamespaceDeclaration(Namespace.getNamespace(prefix, reader.getNamespaceURI(i)));
+                }
+            }
+        } catch (XMLStreamException e)
+        {
+            throw toImporterException(e);
+        }
+    }
+
+    /**
+     * Returns the skeleton root element. It has all namespace declarations and the
+     * attributes of the document root right after the construction, but other children
+     * (<code>head</code> and empty <code>body</code>) appear only as the reading goes.
+     *
+     * @return root element.
+     */
+    Element getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Returns the skeleton body element.
+     *
+     * @return body element or <code>NULL</code> if it wasn't met yet.
+     */
+    Element getBody()
+    {
+        return body;
+    }
+
+    /**
+     * Moves forward to the start of the next top-level outline.
+     *
+     * @return <code>TRUE</code> if there's one more outline to read.
+     *
+     * @throws ImporterException if the document is not well-formed or can't be read.
+     */
+    boolean hasNextOutline()
+        throws ImporterException
+    {
+        try
+        {
+            while (!positioned && !finished)
+            {
+                int event = reader.next();
+                if (event == START_ELEMENT)
+                {
+                    boolean noNamespace = isEmpty(reader.getNamespaceURI());
+                    if (inBody)
+                    {
+                        if (noNamespace && TAG_OUTLINE.equals(reader.getLocalName()))
+                        {
+                            positioned = true;
+                        } else skipElement();
+                    } else if (body == null && noNamespace && TAG_BODY.equals(reader.getLocalName()))
+                    {
+                        body = createElement();
+                        root.addContent(body);
+                        inBody = true;
+                    } else root.addContent(readElement());
+                } else if (event == END_ELEMENT)
+                {
+                    if (inBody)
+                    {
+                        inBody = false;
+                    } else finished = true;
+                } else if (event == END_DOCUMENT)
+                {
+                    finished = true;
+                }
+            }
+        } catch (XMLStreamException e)
+        {
+            throw toImporterException(e);
+        }
+
+        return positioned;
+    }
+
+    /**
+     * Reads the next top-level outline with all its children.
+     *
+     * @return outline or <code>NULL</code> if there are no more outlines in the body.
+     *
+     * @throws ImporterException if the document is not well-formed or can't be read.
+     */
+    Element nextOutline()
+        throws ImporterException
+    {
+        Element outline = null;
+
+        if (hasNextOutline())
+        {
+            positioned = false;
+            try
+            {
+                outline = readElement();
+            } catch (XMLStreamException e)
+            {
+                throw toImporterException(e);
+            }
+        }
+
+        return outline;
+    }
+
+    /**
+     * Reads the rest of the document. It's necessary to catch the format errors and
+     * pick the elements following the body.
+     *
+     * @throws ImporterException if the document is not well-formed or can't be read.
+     */
+    void finish()
+        throws ImporterException
+    {
+        while (nextOutline() != null);
+    }
+
+    /**
+     * Releases the parser. The source of data isn't closed.
+     */
+    void close()
+    {
+        try
+        {
+            reader.close();
+        } catch (XMLStreamException e)
+        {
+            // Nothing to do here.
+        }
+    }
+
+    /**
+     * Reads the element the reader stands at with all its children and text.
+     * Whitespace-only text is dropped as it's never used by the importer.
+     *
+     * @return element.
+     *
+     * @throws XMLStreamException if the document is not well-formed or can't be read.
+     */
+    private Element readElement()
+        throws XMLStreamException
+    {
+        Element element = createElement();
+
+        int event;
+        while ((event = reader.next()) != END_ELEMENT)
+        {
+            if (event == START_ELEMENT)
+            {
+                element.addContent(readElement());
+            } else if ((event == CHARACTERS || event == CDATA) && !reader.isWhiteSpace())
+            {
+                element.addContent(new Text(reader.getText()));
+            }
+        }
+
+        return element;
+    }
+
+    /**
+     * Skips the element the reader stands at with all its children.
+     *
+     * @throws XMLStreamException if the document is not well-formed or can't be read.
+     */
+    private void skipElement()
+        throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = reader.next();
+            if (event == START_ELEMENT)
+            {
+                depth++;
+            } else if (event == END_ELEMENT)
+            {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Creates detached element for the start tag the reader stands at and copies
+     * all attributes.
+     *
+     * @return element.
+     */
+    private Element createElement()
+    {
+        Element element = new Element(reader.getLocalName(),
+            getNamespace(reader.getPrefix(), reader.getNamespaceURI()));
+
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            element.setAttribute(new Attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i),
+                getNamespace(reader.getAttributePrefix(i), reader.getAttributeNamespace(i))));
+        }
+
+        return element;
+    }
+
+    /**
+     * Returns JDOM namespace for the prefix and URI reported by the parser.
+     *
+     * @param prefix    prefix or <code>NULL</code>.
+     * @param uri       URI or <code>NULL</code>.
+     *
+     * @return namespace.
+     */
+    private static Namespace getNamespace(String prefix, String uri)
+    {
+        return isEmpty(uri)
+            ? Namespace.NO_NAMESPACE
+            : Namespace.getNamespace(prefix == null ? "" : prefix, uri);
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the string is <code>NULL</code> or empty.
+     *
+     * @param str string.
+     *
+     * @return <code>TRUE</code> if the string is <code>NULL</code> or empty.
+     */
+    private static boolean isEmpty(String str)
+    {
+        return str == null || str.length() == 0;
+    }
+
+    /**
+     * Converts parser exception into importer exception of the appropriate type.
+     *
+     * @param e parser exception.
+     *
+     * @return importer exception.
+     */
+    private static ImporterException toImporterException(XMLStreamException e)
+    {
+        Throwable cause = e.getNestedException();
+        return cause instanceof IOException
+            ? ImporterException.io((IOException)cause)
+            : ImporterException.parsing(e.getMessage());
+    }
+}
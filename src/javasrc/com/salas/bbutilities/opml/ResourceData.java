@@ -0,0 +1,137 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import org.xml.sax.InputSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Data of the resource read into memory. It's kept the way it came: raw bytes are
+ * left for the parser to decode, and characters are kept only when the resource
+ * was given as characters.
+ */
+final class ResourceData
+{
+    private final byte[] bytes;
+    private final String chars;
+
+    /**
+     * Creates data.
+     *
+     * @param aBytes    raw bytes or <code>NULL</code>.
+     * @param aChars    characters or <code>NULL</code>.
+     */
+    private ResourceData(byte[] aBytes, String aChars)
+    {
+        bytes = aBytes;
+        chars = aChars;
+    }
+
+    /**
+     * Reads all data from the source and closes it.
+     *
+     * @param source source.
+     *
+     * @return data.
+     *
+     * @throws IOException if reading fails.
+     */
+    static ResourceData read(InputSource source)
+        throws IOException
+    {
+        InputStream in = source.getByteStream();
+        if (in != null)
+        {
+            try
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+                byte[] buf = new byte[8192];
+                int read;
+                while ((read = in.read(buf)) != -1) out.write(buf, 0, read);
+
+                return new ResourceData(out.toByteArray(), null);
+            } finally
+            {
+                in.close();
+            }
+        }
+
+        Reader reader = source.getCharacterStream();
+        try
+        {
+            StringBuilder data = new StringBuilder();
+
+            char[] buf = new char[4096];
+            int read;
+            while ((read = reader.read(buf)) != -1) data.append(buf, 0, read);
+
+            return new ResourceData(null, data.toString());
+        } finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates new source reading this data.
+     *
+     * @return source.
+     */
+    InputSource toSource()
+    {
+        return bytes != null
+            ? new InputSource(new ByteArrayInputStream(bytes))
+            : new InputSource(new StringReader(chars));
+    }
+
+    /**
+     * Calculates the hash of data.
+     *
+     * @return hash.
+     */
+    byte[] hash()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-1").digest(bytes != null ? bytes : chars.getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
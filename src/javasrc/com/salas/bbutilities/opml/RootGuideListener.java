@@ -0,0 +1,42 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+
+/**
+ * Listener which needs to tell the root guide from the others. The root guide is reported
+ * as many times as there are sequences of top-level feeds, and wherever they are in the
+ * resource, while the imported set has it on top.
+ */
+interface RootGuideListener extends OPMLImportListener
+{
+    /**
+     * Invoked when the root guide is created, before it's started for the first time.
+     *
+     * @param guide root guide.
+     */
+    void onRootGuide(OPMLGuide guide);
+}
@@ -0,0 +1,258 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.diff;
+
+import com.salas.bbutilities.NetUtils;
+import com.salas.bbutilities.opml.objects.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the differences between two guide sets in linear time. The objects of each set
+ * are indexed by their keys, and the objects with the same keys are compared:
+ * <ul>
+ *  <li>guides by title;</li>
+ *  <li>direct feeds by canonical XML URL (see {@link NetUtils#getCanonicalURL(String)});</li>
+ *  <li>query feeds by query type and parameter;</li>
+ *  <li>search feeds by query;</li>
+ *  <li>reading lists by URL.</li>
+ * </ul>
+ * When several objects of a set have the same key, they are matched in the order they
+ * go. The feed moved to another guide is reported as removed from one guide and added
+ * to the other.
+ */
+public final class GuideSetDiff
+{
+    /** Separates the key from the number of its occurrence. */
+    private static final char OCCURRENCE = '\0';
+
+    /**
+     * Hidden utility class constructor.
+     */
+    private GuideSetDiff()
+    {
+    }
+
+    /**
+     * Reports the differences between the sets. Added and changed objects are reported in
+     * the order of the new set, and then the removed objects in the order of the old one.
+     *
+     * @param oldSet    old set.
+     * @param newSet    new set.
+     * @param listener  listener to report to.
+     */
+    public static void diff(OPMLGuideSet oldSet, OPMLGuideSet newSet, GuideSetDiffListener listener)
+    {
+        Map<String, OPMLGuide> oldGuides = new LinkedHashMap<String, OPMLGuide>();
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        for (OPMLGuide guide : oldSet.getGuides()) oldGuides.put(key(guide.getTitle(), occurrences), guide);
+
+        occurrences.clear();
+        for (OPMLGuide guide : newSet.getGuides())
+        {
+            OPMLGuide oldGuide = oldGuides.remove(key(guide.getTitle(), occurrences));
+            if (oldGuide == null)
+            {
+                listener.onGuideAdded(guide);
+            } else
+            {
+                if (isChanged(oldGuide, guide)) listener.onGuideChanged(oldGuide, guide);
+                diffFeeds(oldGuide, guide, listener);
+                diffReadingLists(oldGuide, guide, listener);
+            }
+        }
+
+        for (OPMLGuide guide : oldGuides.values()) listener.onGuideRemoved(guide);
+    }
+
+    /**
+     * Reports the differences between the feeds of the guides.
+     *
+     * @param oldGuide  old guide.
+     * @param newGuide  new guide.
+     * @param listener  listener to report to.
+     */
+    private static void diffFeeds(OPMLGuide oldGuide, OPMLGuide newGuide, GuideSetDiffListener listener)
+    {
+        List<DefaultOPMLFeed> feeds = oldGuide.getFeeds();
+        Map<String, DefaultOPMLFeed> oldFeeds = new LinkedHashMap<String, DefaultOPMLFeed>(feeds.size() * 2);
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        for (DefaultOPMLFeed feed : feeds) oldFeeds.put(key(getFeedKey(feed), occurrences), feed);
+
+        occurrences.clear();
+        for (DefaultOPMLFeed feed : newGuide.getFeeds())
+        {
+            DefaultOPMLFeed oldFeed = oldFeeds.remove(key(getFeedKey(feed), occurrences));
+            if (oldFeed == null)
+            {
+                listener.onFeedAdded(newGuide, feed);
+            } else if (isChanged(oldFeed, feed))
+            {
+                listener.onFeedChanged(newGuide, oldFeed, feed);
+            }
+        }
+
+        for (DefaultOPMLFeed feed : oldFeeds.values()) listener.onFeedRemoved(newGuide, feed);
+    }
+
+    /**
+     * Reports the differences between the reading lists of the guides.
+     *
+     * @param oldGuide  old guide.
+     * @param newGuide  new guide.
+     * @param listener  listener to report to.
+     */
+    private static void diffReadingLists(OPMLGuide oldGuide, OPMLGuide newGuide, GuideSetDiffListener listener)
+    {
+        Map<String, OPMLReadingList> oldLists = new LinkedHashMap<String, OPMLReadingList>();
+        Map<String, Integer> occurrences = new HashMap<String, Integer>();
+        for (OPMLReadingList list : oldGuide.getReadingLists()) oldLists.put(key(list.getURL(), occurrences), list);
+
+        occurrences.clear();
+        for (OPMLReadingList list : newGuide.getReadingLists())
+        {
+            OPMLReadingList oldList = oldLists.remove(key(list.getURL(), occurrences));
+            if (oldList == null)
+            {
+                listener.onReadingListAdded(newGuide, list);
+            } else if (!equal(oldList.getTitle(), list.getTitle()) || !oldList.getFeeds().equals(list.getFeeds()))
+            {
+                listener.onReadingListChanged(newGuide, oldList, list);
+            }
+        }
+
+        for (OPMLReadingList list : oldLists.values()) listener.onReadingListRemoved(newGuide, list);
+    }
+
+    /**
+     * Returns the key of the feed.
+     *
+     * @param feed feed.
+     *
+     * @return key.
+     */
+    private static String getFeedKey(DefaultOPMLFeed feed)
+    {
+        String key;
+        if (feed instanceof DirectOPMLFeed)
+        {
+            key = "d:" + NetUtils.getCanonicalURL(((DirectOPMLFeed)feed).getXmlURL());
+        } else if (feed instanceof QueryOPMLFeed)
+        {
+            QueryOPMLFeed query = (QueryOPMLFeed)feed;
+            key = "q:" + query.getQueryType() + ":" + query.getQueryParam();
+        } else if (feed instanceof SearchOPMLFeed)
+        {
+            key = "s:" + ((SearchOPMLFeed)feed).getQuery();
+        } else
+        {
+            key = feed.getClass().getName() + ":" + feed.getTitle();
+        }
+
+        return key;
+    }
+
+    /**
+     * Returns the key with the number of its occurrence, so that the same keys of the
+     * objects of one set are different.
+     *
+     * @param key           key of the object.
+     * @param occurrences   numbers of occurrences of the keys met so far.
+     *
+     * @return unique key.
+     */
+    private static String key(String key, Map<String, Integer> occurrences)
+    {
+        if (key == null) key = "";
+
+        Integer count = occurrences.get(key);
+        occurrences.put(key, count == null ? 1 : count + 1);
+
+        return count == null ? key : key + OCCURRENCE + count;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the properties of the guides are different.
+     *
+     * @param oldGuide  old guide.
+     * @param newGuide  new guide.
+     *
+     * @return <code>TRUE</code> if changed.
+     */
+    private static boolean isChanged(OPMLGuide oldGuide, OPMLGuide newGuide)
+    {
+        return !equal(oldGuide.getIcon(), newGuide.getIcon()) ||
+            oldGuide.isPublishingEnabled() != newGuide.isPublishingEnabled() ||
+            !equal(oldGuide.getPublishingTitle(), newGuide.getPublishingTitle()) ||
+            !equal(oldGuide.getPublishingTags(), newGuide.getPublishingTags()) ||
+            oldGuide.isPublishingPublic() != newGuide.isPublishingPublic() ||
+            oldGuide.getPublishingRating() != newGuide.getPublishingRating() ||
+            oldGuide.isAutoFeedsDiscovery() != newGuide.isAutoFeedsDiscovery() ||
+            oldGuide.isNotificationsAllowed() != newGuide.isNotificationsAllowed() ||
+            oldGuide.isMobile() != newGuide.isMobile();
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the properties of the feeds are different. The properties
+     * the feeds don't compare in <code>equals</code> are compared too.
+     *
+     * @param oldFeed   old feed.
+     * @param newFeed   new feed.
+     *
+     * @return <code>TRUE</code> if changed.
+     */
+    private static boolean isChanged(DefaultOPMLFeed oldFeed, DefaultOPMLFeed newFeed)
+    {
+        if (!equal(oldFeed.getTitle(), newFeed.getTitle())) return true;
+        if (oldFeed.getTitle() != null && !oldFeed.equals(newFeed)) return true;
+        if (oldFeed.getHandlingType() != newFeed.getHandlingType()) return true;
+
+        if (oldFeed instanceof DirectOPMLFeed)
+        {
+            DirectOPMLFeed oldDirect = (DirectOPMLFeed)oldFeed;
+            DirectOPMLFeed newDirect = (DirectOPMLFeed)newFeed;
+            return oldDirect.isDisabled() != newDirect.isDisabled() ||
+                !equal(oldDirect.getTagsExtended(), newDirect.getTagsExtended());
+        }
+
+        return false;
+    }
+
+    /**
+     * Compares the strings.
+     *
+     * @param a first string or <code>NULL</code>.
+     * @param b second string or <code>NULL</code>.
+     *
+     * @return <code>TRUE</code> if equal.
+     */
+    private static boolean equal(String a, String b)
+    {
+        return a == null ? b == null : a.equals(b);
+    }
+}
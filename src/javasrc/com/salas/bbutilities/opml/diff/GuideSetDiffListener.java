@@ -0,0 +1,110 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.diff;
+
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+
+/**
+ * Listener of the differences between two guide sets. Added and removed guides are
+ * reported as a whole, without their feeds and reading lists. The changes in feeds and
+ * reading lists are reported only for the guides present in both sets, and each of them
+ * comes with the guide of the new set.
+ */
+public interface GuideSetDiffListener
+{
+    /**
+     * Invoked when the guide is present only in the new set.
+     *
+     * @param guide new guide.
+     */
+    void onGuideAdded(OPMLGuide guide);
+
+    /**
+     * Invoked when the guide is present only in the old set.
+     *
+     * @param guide old guide.
+     */
+    void onGuideRemoved(OPMLGuide guide);
+
+    /**
+     * Invoked when the properties of the guide have changed.
+     *
+     * @param oldGuide  old guide.
+     * @param newGuide  new guide.
+     */
+    void onGuideChanged(OPMLGuide oldGuide, OPMLGuide newGuide);
+
+    /**
+     * Invoked when the feed is present only in the new guide.
+     *
+     * @param guide guide.
+     * @param feed  new feed.
+     */
+    void onFeedAdded(OPMLGuide guide, DefaultOPMLFeed feed);
+
+    /**
+     * Invoked when the feed is present only in the old guide.
+     *
+     * @param guide guide.
+     * @param feed  old feed.
+     */
+    void onFeedRemoved(OPMLGuide guide, DefaultOPMLFeed feed);
+
+    /**
+     * Invoked when the properties of the feed have changed.
+     *
+     * @param guide     guide.
+     * @param oldFeed   old feed.
+     * @param newFeed   new feed.
+     */
+    void onFeedChanged(OPMLGuide guide, DefaultOPMLFeed oldFeed, DefaultOPMLFeed newFeed);
+
+    /**
+     * Invoked when the reading list is present only in the new guide.
+     *
+     * @param guide guide.
+     * @param list  new reading list.
+     */
+    void onReadingListAdded(OPMLGuide guide, OPMLReadingList list);
+
+    /**
+     * Invoked when the reading list is present only in the old guide.
+     *
+     * @param guide guide.
+     * @param list  old reading list.
+     */
+    void onReadingListRemoved(OPMLGuide guide, OPMLReadingList list);
+
+    /**
+     * Invoked when the title or the feeds of the reading list have changed.
+     *
+     * @param guide     guide.
+     * @param oldList   old reading list.
+     * @param newList   new reading list.
+     */
+    void onReadingListChanged(OPMLGuide guide, OPMLReadingList oldList, OPMLReadingList newList);
+}
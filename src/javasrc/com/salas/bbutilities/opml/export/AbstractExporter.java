@@ -27,13 +27,12 @@ package com.salas.bbutilities.opml.export;
 import com.salas.bbutilities.opml.objects.FormatConstants;
 import com.salas.bbutilities.opml.objects.OPMLGuide;
 import com.salas.bbutilities.opml.objects.OPMLGuideSet;
+import com.salas.bbutilities.opml.utils.DateCodec;
 import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.Comment;
 
-import java.text.SimpleDateFormat;
 import java.util.Date;
-import java.util.Locale;
 
 /**
  * Abstract exporter implementation taking care of the basic stuff.
@@ -123,7 +122,7 @@ abstract class AbstractExporter implements FormatConstants, IExporter
     {
         if (AbstractExporter.generator != null)
         {
-            String date = new SimpleDateFormat(DATE_FORMAT, Locale.US).format(new Date());
+            String date = DateCodec.format(new Date());
             doc.addContent(new Comment(" " + AbstractExporter.generator.trim() + " on " + date + " "));
         }
 
@@ -154,7 +153,7 @@ abstract class AbstractExporter implements FormatConstants, IExporter
         {
             Element dateModifiedE = new Element(TAG_HEAD_DATE_MODIFIED);
             head.addContent(dateModifiedE);
-            dateModifiedE.setText(new SimpleDateFormat(DATE_FORMAT, Locale.US).format(dateModified));
+            dateModifiedE.setText(DateCodec.format(dateModified));
         }
     }
 
@@ -0,0 +1,504 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.export;
+
+import com.salas.bbutilities.opml.objects.*;
+import com.salas.bbutilities.opml.utils.ByteBufferOutputStream;
+import com.salas.bbutilities.opml.utils.DateCodec;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Namespace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Exporter writing OPML right to the stream without building the document. The output
+ * is exactly the same as of {@link Exporter} serialized with
+ * {@link com.salas.bbutilities.opml.utils.Transformation#documentToString}, but only
+ * the attributes of a single outline are kept in memory at a time.
+ */
+public class StreamExporter implements FormatConstants
+{
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    /** When doing extended export extra information gets into the output. */
+    private final boolean extendedExport;
+
+    /** <code>TRUE</code> to write the keys of articles in the packed form. */
+    private boolean packedArticleKeys = false;
+
+    /**
+     * Creates exporter.
+     *
+     * @param aExtendedExport <code>TRUE</code> export in extended format.
+     */
+    public StreamExporter(boolean aExtendedExport)
+    {
+        extendedExport = aExtendedExport;
+    }
+
+    /**
+     * Sets the state of flag showing if the keys of read and pinned articles should be
+     * written in the packed form in extended export. It takes much less space, but only
+     * the importers knowing the packed attributes will read it. The keys which can't be
+     * packed are written as usual.
+     *
+     * @param value TRUE to write the packed keys.
+     *
+     * @see ArticleKeys#toPackedString()
+     */
+    public void setPackedArticleKeys(boolean value)
+    {
+        packedArticleKeys = value;
+    }
+
+    /**
+     * Writes the set of guides to the stream in UTF-8. The stream is flushed, but not closed.
+     *
+     * @param set   guides set.
+     * @param out   stream to write to.
+     *
+     * @throws IOException if writing fails.
+     */
+    public void export(OPMLGuideSet set, OutputStream out)
+        throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+        export(set, writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the set of guides to the channel in UTF-8. The channel isn't closed.
+     *
+     * @param set       guides set.
+     * @param channel   channel to write to.
+     *
+     * @throws IOException if writing fails.
+     */
+    public void export(OPMLGuideSet set, WritableByteChannel channel)
+        throws IOException
+    {
+        export(set, Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes the set of guides to the buffer in UTF-8. The data is written from the
+     * position of the buffer. If the buffer is too small, the bigger one is allocated.
+     *
+     * @param set       guides set.
+     * @param buffer    buffer, for example, taken from the pool.
+     *
+     * @return flipped buffer with the data. It's either the buffer given or the bigger one.
+     */
+    public ByteBuffer export(OPMLGuideSet set, ByteBuffer buffer)
+    {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(buffer);
+        try
+        {
+            export(set, out);
+        } catch (IOException e)
+        {
+            // Writing to the buffer doesn't fail
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer result = out.getBuffer();
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Writes the set of guides to the writer. The document is declared as UTF-8, so the
+     * writer should encode it this way. The writer is flushed, but not closed.
+     *
+     * @param set   guides set.
+     * @param out   writer to write to.
+     *
+     * @throws IOException if writing fails.
+     */
+    public void export(OPMLGuideSet set, Writer out)
+        throws IOException
+    {
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        out.write(LINE_SEPARATOR);
+
+        if (AbstractExporter.generator != null)
+        {
+            String date = DateCodec.format(new Date());
+            out.write("<!-- ");
+            out.write(AbstractExporter.generator.trim());
+            out.write(" on ");
+            out.write(date);
+            out.write(" -->");
+        }
+
+        out.write('<');
+        out.write(TAG_ROOT);
+        out.write(" xmlns:");
+        out.write(BB_NAMESPACE.getPrefix());
+        out.write("=\"");
+        writeEscaped(out, BB_NAMESPACE.getURI(), true);
+        out.write("\" ");
+        out.write(ATTR_OPML_VERSION);
+        out.write("=\"");
+        out.write(AbstractExporter.OPML_VERSION);
+        out.write("\">");
+
+        writeHead(out, set.getTitle(), set.getDateModified());
+
+        OPMLGuide[] guides = set.getGuides();
+        if (guides.length == 0)
+        {
+            writeEmptyTag(out, TAG_BODY);
+        } else
+        {
+            writeStartTag(out, TAG_BODY);
+            Element outline = new Element(TAG_OUTLINE);
+            for (OPMLGuide guide : guides) writeGuide(out, guide, outline);
+            writeEndTag(out, TAG_BODY);
+        }
+
+        writeEndTag(out, TAG_ROOT);
+        out.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes head section.
+     *
+     * @param out           writer.
+     * @param title         title to write.
+     * @param dateModified  date of modification.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeHead(Writer out, String title, Date dateModified)
+        throws IOException
+    {
+        writeStartTag(out, TAG_HEAD);
+        writeTextElement(out, TAG_HEAD_TITLE, title);
+        if (dateModified != null)
+        {
+            writeTextElement(out, TAG_HEAD_DATE_MODIFIED,
+                DateCodec.format(dateModified));
+        }
+        writeEndTag(out, TAG_HEAD);
+    }
+
+    /**
+     * Writes guide with its reading lists and feeds.
+     *
+     * @param out       writer.
+     * @param guide     guide.
+     * @param outline   temporary outline to collect the attributes in.
+     *
+     * @throws IOException if writing fails.
+     */
+    private void writeGuide(Writer out, OPMLGuide guide, Element outline)
+        throws IOException
+    {
+        outline.getAttributes().clear();
+        guide.writeAttributes(outline, BB_NAMESPACE, extendedExport);
+
+        OPMLReadingList[] lists = guide.getReadingLists();
+        List<DefaultOPMLFeed> feeds = guide.getFeeds();
+        if (lists.length == 0 && !hasExportedFeeds(feeds))
+        {
+            writeOutline(out, outline, true);
+        } else
+        {
+            writeOutline(out, outline, false);
+
+            for (OPMLReadingList list : lists)
+            {
+                outline.getAttributes().clear();
+                list.writeAttributes(outline);
+
+                List listFeeds = list.getFeeds();
+                if (!hasExportedFeeds(listFeeds))
+                {
+                    writeOutline(out, outline, true);
+                } else
+                {
+                    writeOutline(out, outline, false);
+                    writeFeeds(out, listFeeds, outline);
+                    writeEndTag(out, TAG_OUTLINE);
+                }
+            }
+
+            writeFeeds(out, feeds, outline);
+            writeEndTag(out, TAG_OUTLINE);
+        }
+    }
+
+    /**
+     * Writes feeds which get into export.
+     *
+     * @param out       writer.
+     * @param feeds     feeds.
+     * @param outline   temporary outline to collect the attributes in.
+     *
+     * @throws IOException if writing fails.
+     */
+    private void writeFeeds(Writer out, List feeds, Element outline)
+        throws IOException
+    {
+        for (Object obj : feeds)
+        {
+            DefaultOPMLFeed feed = (DefaultOPMLFeed)obj;
+            if (isExported(feed))
+            {
+                outline.getAttributes().clear();
+                feed.write(outline, BB_NAMESPACE, extendedExport);
+                if (extendedExport && packedArticleKeys)
+                {
+                    packArticleKeys(outline, ATTR_FEED_READ_ARTICLES, ATTR_FEED_READ_ARTICLES_PACKED,
+                        feed.getReadArticles());
+                    packArticleKeys(outline, ATTR_FEED_PINNED_ARTICLES, ATTR_FEED_PINNED_ARTICLES_PACKED,
+                        feed.getPinnedArticles());
+                }
+                writeOutline(out, outline, true);
+            }
+        }
+    }
+
+    /**
+     * Replaces the list of article keys written to the outline with its packed form.
+     *
+     * @param outline       outline.
+     * @param name          name of the list attribute.
+     * @param packedName    name of the packed form attribute.
+     * @param keys          keys.
+     */
+    private static void packArticleKeys(Element outline, String name, String packedName, ArticleKeys keys)
+    {
+        if (keys != null && keys.isCompact() && outline.getAttribute(name, BB_NAMESPACE) != null)
+        {
+            outline.removeAttribute(name, BB_NAMESPACE);
+            outline.setAttribute(packedName, keys.toPackedString(), BB_NAMESPACE);
+        }
+    }
+
+    /**
+     * Returns <code>TRUE</code> if some of the feeds get into export.
+     *
+     * @param feeds feeds.
+     *
+     * @return <code>TRUE</code> if some of the feeds get into export.
+     */
+    private boolean hasExportedFeeds(List feeds)
+    {
+        for (Object feed : feeds)
+        {
+            if (isExported((DefaultOPMLFeed)feed)) return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the feed gets into export.
+     *
+     * @param feed feed.
+     *
+     * @return <code>TRUE</code> if the feed gets into export.
+     */
+    private boolean isExported(DefaultOPMLFeed feed)
+    {
+        return extendedExport || feed instanceof DirectOPMLFeed;
+    }
+
+    /**
+     * Writes the start tag of the outline with all attributes.
+     *
+     * @param out       writer.
+     * @param outline   outline with attributes.
+     * @param empty     <code>TRUE</code> to close the tag right away.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeOutline(Writer out, Element outline, boolean empty)
+        throws IOException
+    {
+        out.write('<');
+        out.write(TAG_OUTLINE);
+        for (Object obj : outline.getAttributes())
+        {
+            Attribute attribute = (Attribute)obj;
+
+            out.write(' ');
+            Namespace ns = attribute.getNamespace();
+            if (ns.getPrefix().length() > 0)
+            {
+                out.write(ns.getPrefix());
+                out.write(':');
+            }
+            out.write(attribute.getName());
+            out.write("=\"");
+            writeEscaped(out, attribute.getValue(), true);
+            out.write('"');
+        }
+        out.write(empty ? " />" : ">");
+    }
+
+    /**
+     * Writes the element with the text. When the text is <code>NULL</code> the empty
+     * element is written.
+     *
+     * @param out   writer.
+     * @param name  name of the element.
+     * @param text  text or <code>NULL</code>.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeTextElement(Writer out, String name, String text)
+        throws IOException
+    {
+        if (text == null)
+        {
+            writeEmptyTag(out, name);
+        } else
+        {
+            writeStartTag(out, name);
+            writeEscaped(out, text, false);
+            writeEndTag(out, name);
+        }
+    }
+
+    /**
+     * Writes the start tag.
+     *
+     * @param out   writer.
+     * @param name  name of the element.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeStartTag(Writer out, String name)
+        throws IOException
+    {
+        out.write('<');
+        out.write(name);
+        out.write('>');
+    }
+
+    /**
+     * Writes the end tag.
+     *
+     * @param out   writer.
+     * @param name  name of the element.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeEndTag(Writer out, String name)
+        throws IOException
+    {
+        out.write("</");
+        out.write(name);
+        out.write('>');
+    }
+
+    /**
+     * Writes the tag of empty element.
+     *
+     * @param out   writer.
+     * @param name  name of the element.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeEmptyTag(Writer out, String name)
+        throws IOException
+    {
+        out.write('<');
+        out.write(name);
+        out.write(" />");
+    }
+
+    /**
+     * Writes the text escaping special characters.
+     *
+     * @param out       writer.
+     * @param text      text.
+     * @param attribute <code>TRUE</code> if it's the value of attribute, which means that
+     *                  quotes and whitespace characters should be escaped too.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeEscaped(Writer out, String text, boolean attribute)
+        throws IOException
+    {
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++)
+        {
+            String entity;
+            char ch = text.charAt(i);
+            switch (ch)
+            {
+                case '<':
+                    entity = "&lt;";
+                    break;
+                case '>':
+                    entity = "&gt;";
+                    break;
+                case '&':
+                    entity = "&amp;";
+                    break;
+                case '\r':
+                    entity = "&#xD;";
+                    break;
+                case '"':
+                    entity = attribute ? "&quot;" : null;
+                    break;
+                case '\t':
+                    entity = attribute ? "&#x9;" : null;
+                    break;
+                case '\n':
+                    entity = attribute ? "&#xA;" : LINE_SEPARATOR;
+                    break;
+                default:
+                    entity = null;
+                    break;
+            }
+
+            if (entity != null)
+            {
+                out.write(text, start, i - start);
+                out.write(entity);
+                start = i + 1;
+            }
+        }
+
+        out.write(text, start, length - start);
+    }
+}
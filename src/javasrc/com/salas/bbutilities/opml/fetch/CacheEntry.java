@@ -0,0 +1,90 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+/**
+ * Cached copy of the resource along with the validators the server has given for it.
+ * Validators are kept exactly as they came to be sent back in conditional requests.
+ */
+public final class CacheEntry
+{
+    private final byte[] data;
+    private final String eTag;
+    private final String lastModified;
+
+    /**
+     * Creates entry.
+     *
+     * @param aData         data of the resource.
+     * @param aETag         value of <code>ETag</code> header or <code>NULL</code>.
+     * @param aLastModified value of <code>Last-Modified</code> header or <code>NULL</code>.
+     */
+    public CacheEntry(byte[] aData, String aETag, String aLastModified)
+    {
+        data = aData;
+        eTag = aETag;
+        lastModified = aLastModified;
+    }
+
+    /**
+     * Returns data of the resource.
+     *
+     * @return data.
+     */
+    public byte[] getData()
+    {
+        return data;
+    }
+
+    /**
+     * Returns value of <code>ETag</code> header.
+     *
+     * @return value or <code>NULL</code>.
+     */
+    public String getETag()
+    {
+        return eTag;
+    }
+
+    /**
+     * Returns value of <code>Last-Modified</code> header.
+     *
+     * @return value or <code>NULL</code>.
+     */
+    public String getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * Returns the size of entry which counts in the cache limits.
+     *
+     * @return size in bytes.
+     */
+    public long getSize()
+    {
+        return data.length;
+    }
+}
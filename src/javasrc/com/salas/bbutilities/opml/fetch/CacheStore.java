@@ -0,0 +1,67 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import java.io.IOException;
+
+/**
+ * Storage of cached resources. Implementations are free to drop entries whenever
+ * they need the space, and should be safe to use from several threads at once.
+ */
+public interface CacheStore
+{
+    /**
+     * Returns the entry cached for the URL.
+     *
+     * @param url URL of the resource.
+     *
+     * @return entry or <code>NULL</code> if nothing is cached.
+     *
+     * @throws IOException if the storage fails.
+     */
+    CacheEntry get(String url)
+        throws IOException;
+
+    /**
+     * Puts the entry for the URL replacing previous one.
+     *
+     * @param url   URL of the resource.
+     * @param entry entry.
+     *
+     * @throws IOException if the storage fails.
+     */
+    void put(String url, CacheEntry entry)
+        throws IOException;
+
+    /**
+     * Removes the entry for the URL if there is one.
+     *
+     * @param url URL of the resource.
+     *
+     * @throws IOException if the storage fails.
+     */
+    void remove(String url)
+        throws IOException;
+}
@@ -0,0 +1,179 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetcher which remembers the resources downloaded over HTTP along with their
+ * <code>ETag</code> and <code>Last-Modified</code> validators. Next time the resource
+ * is requested conditionally, and if the server responds it's not modified, the data
+ * is taken from the cache. Resources of other protocols are opened directly.
+ */
+public class CachingFetcher implements Fetcher
+{
+    private static final Logger LOG = Logger.getLogger(CachingFetcher.class.getName());
+
+    private final CacheStore store;
+
+    /**
+     * Creates fetcher.
+     *
+     * @param aStore store to keep resources in.
+     */
+    public CachingFetcher(CacheStore aStore)
+    {
+        store = aStore;
+    }
+
+    /**
+     * Opens the resource at the specified URL for reading.
+     *
+     * @param url URL of the resource.
+     *
+     * @return stream with the data of the resource.
+     *
+     * @throws IOException if the resource can't be opened.
+     */
+    public InputStream open(URL url)
+        throws IOException
+    {
+        URLConnection connection = openConnection(url);
+        if (!(connection instanceof HttpURLConnection)) return connection.getInputStream();
+
+        HttpURLConnection http = (HttpURLConnection)connection;
+        String key = url.toString();
+
+        CacheEntry entry = getEntry(key);
+        if (entry != null)
+        {
+            if (entry.getETag() != null) http.setRequestProperty("If-None-Match", entry.getETag());
+            if (entry.getLastModified() != null)
+            {
+                http.setRequestProperty("If-Modified-Since", entry.getLastModified());
+            }
+        }
+
+        if (entry != null && http.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED)
+        {
+            http.disconnect();
+            return new ByteArrayInputStream(entry.getData());
+        }
+
+        byte[] data = readFully(http.getInputStream());
+
+        String eTag = http.getHeaderField("ETag");
+        String lastModified = http.getHeaderField("Last-Modified");
+        try
+        {
+            if (eTag != null || lastModified != null)
+            {
+                store.put(key, new CacheEntry(data, eTag, lastModified));
+            } else if (entry != null)
+            {
+                store.remove(key);
+            }
+        } catch (IOException e)
+        {
+            LOG.log(Level.WARNING, "Failed to cache resource: " + key, e);
+        }
+
+        return new ByteArrayInputStream(data);
+    }
+
+    /**
+     * Opens the connection to the URL. Subclasses may override it to configure
+     * connections (timeouts, user agent and so on).
+     *
+     * @param url URL.
+     *
+     * @return connection.
+     *
+     * @throws IOException if opening fails.
+     */
+    protected URLConnection openConnection(URL url)
+        throws IOException
+    {
+        return url.openConnection();
+    }
+
+    /**
+     * Returns the cached entry. Failures of the store are logged, as the resource
+     * can still be downloaded.
+     *
+     * @param key key.
+     *
+     * @return entry or <code>NULL</code>.
+     */
+    private CacheEntry getEntry(String key)
+    {
+        CacheEntry entry = null;
+
+        try
+        {
+            entry = store.get(key);
+        } catch (IOException e)
+        {
+            LOG.log(Level.WARNING, "Failed to read cached resource: " + key, e);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Reads all data from the stream and closes it.
+     *
+     * @param in stream.
+     *
+     * @return data.
+     *
+     * @throws IOException if reading fails.
+     */
+    private static byte[] readFully(InputStream in)
+        throws IOException
+    {
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = in.read(buf)) != -1) out.write(buf, 0, read);
+
+            return out.toByteArray();
+        } finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Keeps cached resources in files of the directory, so they survive restarts. When
+ * the total size of the files grows over the limit, least recently used ones are
+ * deleted. The files are named after the hash of their URLs.
+ */
+public class DiskCacheStore implements CacheStore
+{
+    private static final String SUFFIX = ".cache";
+
+    private final File directory;
+    private final long maxSize;
+
+    /** Total size of files, or <code>-1</code> until the directory is scanned. */
+    private long size;
+
+    /**
+     * Creates store.
+     *
+     * @param aDirectory    directory to keep files in. It's created if missing.
+     * @param aMaxSize      maximum total size of files in bytes.
+     */
+    public DiskCacheStore(File aDirectory, long aMaxSize)
+    {
+        directory = aDirectory;
+        maxSize = aMaxSize;
+        size = -1;
+    }
+
+    /**
+     * Returns the entry cached for the URL.
+     *
+     * @param url URL of the resource.
+     *
+     * @return entry or <code>NULL</code> if nothing is cached.
+     *
+     * @throws IOException if reading fails.
+     */
+    public synchronized CacheEntry get(String url)
+        throws IOException
+    {
+        File file = getFile(url);
+        if (!file.exists()) return null;
+
+        CacheEntry entry;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            // Different URLs may have the same hash
+            if (!url.equals(in.readUTF())) return null;
+
+            String eTag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+
+            entry = new CacheEntry(data, eTag, lastModified);
+        } finally
+        {
+            in.close();
+        }
+
+        // Mark as recently used
+        file.setLastModified(System.currentTimeMillis());
+
+        return entry;
+    }
+
+    /**
+     * Puts the entry for the URL replacing previous one. Entries larger than
+     * the whole store aren't kept.
+     *
+     * @param url   URL of the resource.
+     * @param entry entry.
+     *
+     * @throws IOException if writing fails.
+     */
+    public synchronized void put(String url, CacheEntry entry)
+        throws IOException
+    {
+        remove(url);
+        if (entry.getSize() > maxSize) return;
+
+        // Make sure the size is known before the new file appears
+        getSize();
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Failed to create directory: " + directory);
+        }
+
+        File file = getFile(url);
+        File temp = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeUTF(url);
+            writeOptionalUTF(out, entry.getETag());
+            writeOptionalUTF(out, entry.getLastModified());
+            out.writeInt(entry.getData().length);
+            out.write(entry.getData());
+        } finally
+        {
+            out.close();
+        }
+
+        if (!temp.renameTo(file))
+        {
+            temp.delete();
+            throw new IOException("Failed to write cache file: " + file);
+        }
+
+        size += file.length();
+        if (size > maxSize) evict();
+    }
+
+    /**
+     * Removes the entry for the URL if there is one.
+     *
+     * @param url URL of the resource.
+     */
+    public synchronized void remove(String url)
+    {
+        File file = getFile(url);
+        long length = file.length();
+        if (file.delete() && size != -1) size -= length;
+    }
+
+    /**
+     * Returns the total size of files.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        if (size == -1)
+        {
+            size = 0;
+            for (File file : listFiles()) size += file.length();
+        }
+
+        return size;
+    }
+
+    /**
+     * Deletes least recently used files until the total size is within the limit.
+     */
+    private void evict()
+    {
+        File[] files = listFiles();
+        Arrays.sort(files, new Comparator<File>()
+        {
+            public int compare(File f1, File f2)
+            {
+                long m1 = f1.lastModified();
+                long m2 = f2.lastModified();
+                return m1 < m2 ? -1 : m1 == m2 ? 0 : 1;
+            }
+        });
+
+        for (int i = 0; size > maxSize && i < files.length; i++)
+        {
+            long length = files[i].length();
+            if (files[i].delete()) size -= length;
+        }
+    }
+
+    /**
+     * Lists cache files of the directory.
+     *
+     * @return files.
+     */
+    private File[] listFiles()
+    {
+        File[] files = directory.listFiles(new java.io.FileFilter()
+        {
+            public boolean accept(File file)
+            {
+                return file.getName().endsWith(SUFFIX);
+            }
+        });
+
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Returns the file for the URL.
+     *
+     * @param url URL.
+     *
+     * @return file.
+     */
+    private File getFile(String url)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes("UTF-8"));
+
+            StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+            for (byte b : digest)
+            {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16));
+                name.append(Character.forDigit(b & 0xf, 16));
+            }
+            name.append(SUFFIX);
+
+            return new File(directory, name.toString());
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        } catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes the string which may be <code>NULL</code>.
+     *
+     * @param out       stream.
+     * @param string    string or <code>NULL</code>.
+     *
+     * @throws IOException if writing fails.
+     */
+    private static void writeOptionalUTF(DataOutputStream out, String string)
+        throws IOException
+    {
+        out.writeBoolean(string != null);
+        if (string != null) out.writeUTF(string);
+    }
+}
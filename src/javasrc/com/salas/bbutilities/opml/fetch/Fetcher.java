@@ -0,0 +1,50 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * Opens resources for reading. The importer uses it to take the resources it's asked
+ * to import and the resources they embed, which allows the application to decide
+ * how they are downloaded and cached.
+ */
+public interface Fetcher
+{
+    /**
+     * Opens the resource at the specified URL for reading. Implementations should
+     * be safe to call from several threads at once.
+     *
+     * @param url URL of the resource.
+     *
+     * @return stream with the data of the resource.
+     *
+     * @throws IOException if the resource can't be opened.
+     */
+    InputStream open(URL url)
+        throws IOException;
+}
@@ -0,0 +1,108 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps cached resources in memory. When the total size of the entries grows over
+ * the limit, least recently used ones are evicted.
+ */
+public class MemoryCacheStore implements CacheStore
+{
+    private final long maxSize;
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private long size;
+
+    /**
+     * Creates store.
+     *
+     * @param aMaxSize maximum total size of entries in bytes.
+     */
+    public MemoryCacheStore(long aMaxSize)
+    {
+        maxSize = aMaxSize;
+        entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+        size = 0;
+    }
+
+    /**
+     * Returns the entry cached for the URL.
+     *
+     * @param url URL of the resource.
+     *
+     * @return entry or <code>NULL</code> if nothing is cached.
+     */
+    public synchronized CacheEntry get(String url)
+    {
+        return entries.get(url);
+    }
+
+    /**
+     * Puts the entry for the URL replacing previous one. Entries larger than
+     * the whole store aren't kept.
+     *
+     * @param url   URL of the resource.
+     * @param entry entry.
+     */
+    public synchronized void put(String url, CacheEntry entry)
+    {
+        remove(url);
+        if (entry.getSize() > maxSize) return;
+
+        entries.put(url, entry);
+        size += entry.getSize();
+
+        Iterator<Map.Entry<String, CacheEntry>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext())
+        {
+            size -= it.next().getValue().getSize();
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes the entry for the URL if there is one.
+     *
+     * @param url URL of the resource.
+     */
+    public synchronized void remove(String url)
+    {
+        CacheEntry entry = entries.remove(url);
+        if (entry != null) size -= entry.getSize();
+    }
+
+    /**
+     * Returns the total size of entries.
+     *
+     * @return size in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,259 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.objects;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Keys of articles (read or pinned) of the feed. The keys come as a comma-separated list
+ * of hexadecimal hash codes, which for heavily read feeds is tens of kilobytes long.
+ * When the list is in exactly this form, the keys are kept as integers, taking a fraction
+ * of the memory, and the text is restored only when asked for. Lists in any other form
+ * are kept as they are, so nothing is ever lost.
+ * <p>
+ * Integer keys also have the packed form: zigzag-encoded differences between neighbour
+ * keys written as variable-length integers in Base64.
+ */
+public final class ArticleKeys
+{
+    private static final int MAX_KEY_LENGTH = 8;
+
+    /** Keys or <code>NULL</code> when the text isn't in the compact form. */
+    private final int[] keys;
+    /** Text of the keys or <code>NULL</code> when the keys are compact. */
+    private final String text;
+
+    /**
+     * Creates keys.
+     *
+     * @param aKeys keys.
+     * @param aText text.
+     */
+    private ArticleKeys(int[] aKeys, String aText)
+    {
+        keys = aKeys;
+        text = aText;
+    }
+
+    /**
+     * Returns keys for the comma-separated list.
+     *
+     * @param text list of keys.
+     *
+     * @return keys or <code>NULL</code> if the list is <code>NULL</code>.
+     */
+    public static ArticleKeys valueOf(String text)
+    {
+        if (text == null) return null;
+
+        int[] keys = parse(text);
+        return keys == null ? new ArticleKeys(null, text) : new ArticleKeys(keys, null);
+    }
+
+    /**
+     * Returns keys written in the packed form.
+     *
+     * @param packed packed keys.
+     *
+     * @return keys.
+     *
+     * @throws IllegalArgumentException if the packed form is broken.
+     *
+     * @see #toPackedString()
+     */
+    public static ArticleKeys valueOfPacked(String packed)
+    {
+        byte[] bytes = Base64.getDecoder().decode(packed);
+
+        int count = 0;
+        for (byte b : bytes) if (b >= 0) count++;
+        if (count == 0 || bytes[bytes.length - 1] < 0) throw new IllegalArgumentException("Invalid keys: " + packed);
+
+        int[] keys = new int[count];
+        long previous = 0;
+        int index = 0;
+        for (int i = 0; i < count; i++)
+        {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do
+            {
+                if (shift >= 35) throw new IllegalArgumentException("Invalid keys: " + packed);
+                b = bytes[index++];
+                zigzag |= (long)(b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            keys[i] = (int)previous;
+        }
+
+        return new ArticleKeys(keys, null);
+    }
+
+    /**
+     * Parses the list of canonical hexadecimal keys.
+     *
+     * @param text list.
+     *
+     * @return keys or <code>NULL</code> if the list isn't in canonical form.
+     */
+    private static int[] parse(String text)
+    {
+        int length = text.length();
+        if (length == 0) return null;
+
+        int count = 1;
+        for (int i = 0; i < length; i++) if (text.charAt(i) == ',') count++;
+
+        int[] keys = new int[count];
+        int start = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int end = text.indexOf(',', start);
+            if (end == -1) end = length;
+
+            // Exactly what Integer.toHexString() writes: no leading zeros and lower case
+            int digits = end - start;
+            if (digits == 0 || digits > MAX_KEY_LENGTH || (digits > 1 && text.charAt(start) == '0')) return null;
+
+            int key = 0;
+            for (int j = start; j < end; j++)
+            {
+                char ch = text.charAt(j);
+                int digit;
+                if (ch >= '0' && ch <= '9')
+                {
+                    digit = ch - '0';
+                } else if (ch >= 'a' && ch <= 'f')
+                {
+                    digit = ch - 'a' + 10;
+                } else return null;
+
+                key = (key << 4) | digit;
+            }
+
+            keys[i] = key;
+            start = end + 1;
+        }
+
+        return keys;
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the keys are kept as integers.
+     *
+     * @return <code>TRUE</code> if the keys are kept as integers.
+     */
+    public boolean isCompact()
+    {
+        return keys != null;
+    }
+
+    /**
+     * Returns the copy of integer keys.
+     *
+     * @return keys or <code>NULL</code> if the keys aren't compact.
+     */
+    public int[] toArray()
+    {
+        return keys == null ? null : keys.clone();
+    }
+
+    /**
+     * Returns the packed form of the keys.
+     *
+     * @return packed form or <code>NULL</code> if the keys aren't compact.
+     */
+    public String toPackedString()
+    {
+        if (keys == null) return null;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(keys.length * 3);
+        long previous = 0;
+        for (int key : keys)
+        {
+            long delta = key - previous;
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7fL) != 0)
+            {
+                out.write((int)(zigzag & 0x7f) | 0x80);
+                zigzag >>>= 7;
+            }
+            out.write((int)zigzag);
+            previous = key;
+        }
+
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Returns the comma-separated list of keys.
+     *
+     * @return list of keys.
+     */
+    public String toString()
+    {
+        if (text != null) return text;
+
+        StringBuilder list = new StringBuilder(keys.length * (MAX_KEY_LENGTH + 1));
+        for (int i = 0; i < keys.length; i++)
+        {
+            if (i > 0) list.append(',');
+            list.append(Integer.toHexString(keys[i]));
+        }
+
+        return list.toString();
+    }
+
+    /**
+     * Compares this object to the other.
+     *
+     * @param o other object to compare to.
+     *
+     * @return TRUE if objects are equal.
+     */
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        ArticleKeys that = (ArticleKeys)o;
+        return keys != null ? Arrays.equals(keys, that.keys) : text.equals(that.text);
+    }
+
+    /**
+     * Returns the hash code of this object.
+     *
+     * @return hash code of this object.
+     */
+    public int hashCode()
+    {
+        return keys != null ? Arrays.hashCode(keys) : text.hashCode();
+    }
+}
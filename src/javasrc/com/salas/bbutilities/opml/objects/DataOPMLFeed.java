@@ -57,6 +57,28 @@ public abstract class DataOPMLFeed extends DefaultOPMLFeed
                 aAscendingSorting, aHandlingType);
     }
 
+    /**
+     * Creates default feed with already decoded keys of articles.
+     *
+     * @param aTitle              feed title.
+     * @param aLimit              articles limit.
+     * @param aRating             rating.
+     * @param aViewType           view type.
+     * @param aViewModeEnabled    <code>TRUE</code> if custom view mode is enabled.
+     * @param aViewMode           custom view mode.
+     * @param aAscendingSorting   ascending sorting override flag.
+     * @param aHandlingType       handling type.
+     * @param aReadArticles       keys of read articles or <code>NULL</code>.
+     * @param aPinnedArticles     keys of pinned articles or <code>NULL</code>.
+     */
+    DataOPMLFeed(String aTitle, int aLimit, int aRating, int aViewType, boolean aViewModeEnabled,
+                 int aViewMode, Boolean aAscendingSorting, int aHandlingType,
+                 ArticleKeys aReadArticles, ArticleKeys aPinnedArticles)
+    {
+        super(aTitle, aLimit, aRating, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting, aHandlingType,
+                aReadArticles, aPinnedArticles);
+    }
+
     /**
      * Gets the update period.
      *
@@ -34,8 +34,8 @@ public abstract class DefaultOPMLFeed implements FormatConstants
 {
     private final String  title;
     private final int     rating;
-    private final String  readArticlesKeys;
-    private final String  pinnedArticlesKeys;
+    private final ArticleKeys readArticles;
+    private final ArticleKeys pinnedArticles;
     private final int     limit;
     private final int     viewType;
     private final boolean viewModeEnabled;
@@ -60,12 +60,34 @@ public abstract class DefaultOPMLFeed implements FormatConstants
     public DefaultOPMLFeed(String aTitle, int aLimit, int aRating, String aReadArticlesKeys,
                            String aPinnedArticlesKeys, int aViewType, boolean aViewModeEnabled,
                            int aViewMode, Boolean aAscendingSorting, int aHandlingType)
+    {
+        this(aTitle, aLimit, aRating, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting,
+            aHandlingType, ArticleKeys.valueOf(aReadArticlesKeys), ArticleKeys.valueOf(aPinnedArticlesKeys));
+    }
+
+    /**
+     * Creates default feed with already decoded keys of articles.
+     *
+     * @param aTitle              feed title.
+     * @param aLimit              articles limit.
+     * @param aRating             rating.
+     * @param aViewType           view type.
+     * @param aViewModeEnabled    <code>TRUE</code> if custom view mode is enabled.
+     * @param aViewMode           custom view mode.
+     * @param aAscendingSorting   ascending sorting override flag.
+     * @param aHandlingType       handling type.
+     * @param aReadArticles       keys of read articles or <code>NULL</code>.
+     * @param aPinnedArticles     keys of pinned articles or <code>NULL</code>.
+     */
+    DefaultOPMLFeed(String aTitle, int aLimit, int aRating, int aViewType, boolean aViewModeEnabled,
+                    int aViewMode, Boolean aAscendingSorting, int aHandlingType,
+                    ArticleKeys aReadArticles, ArticleKeys aPinnedArticles)
     {
         title               = aTitle;
         limit               = aLimit;
         rating              = aRating;
-        readArticlesKeys    = aReadArticlesKeys;
-        pinnedArticlesKeys  = aPinnedArticlesKeys;
+        readArticles        = aReadArticles;
+        pinnedArticles      = aPinnedArticles;
         viewType            = aViewType;
         viewModeEnabled     = aViewModeEnabled;
         viewMode            = aViewMode;
@@ -100,7 +122,17 @@ public abstract class DefaultOPMLFeed implements FormatConstants
      */
     public String getReadArticlesKeys()
     {
-        return readArticlesKeys;
+        return readArticles == null ? null : readArticles.toString();
+    }
+
+    /**
+     * Returns keys of read articles.
+     *
+     * @return keys or <code>NULL</code>.
+     */
+    public ArticleKeys getReadArticles()
+    {
+        return readArticles;
     }
 
     /**
@@ -110,7 +142,17 @@ public abstract class DefaultOPMLFeed implements FormatConstants
      */
     public String getPinnedArticlesKeys()
     {
-        return pinnedArticlesKeys;
+        return pinnedArticles == null ? null : pinnedArticles.toString();
+    }
+
+    /**
+     * Returns keys of pinned articles.
+     *
+     * @return keys or <code>NULL</code>.
+     */
+    public ArticleKeys getPinnedArticles()
+    {
+        return pinnedArticles;
     }
 
     /**
@@ -187,8 +229,8 @@ public abstract class DefaultOPMLFeed implements FormatConstants
 
         if (extendedExport)
         {
-            writeIfSet(outline, ATTR_FEED_READ_ARTICLES, bbns, readArticlesKeys);
-            writeIfSet(outline, ATTR_FEED_PINNED_ARTICLES, bbns, pinnedArticlesKeys);
+            writeIfSet(outline, ATTR_FEED_READ_ARTICLES, bbns, getReadArticlesKeys());
+            writeIfSet(outline, ATTR_FEED_PINNED_ARTICLES, bbns, getPinnedArticlesKeys());
         }
 
         writeCommon(outline, bbns, extendedExport);
@@ -284,10 +326,10 @@ public abstract class DefaultOPMLFeed implements FormatConstants
 
         if (limit != defaultFeed.limit) return false;
         if (rating != defaultFeed.rating) return false;
-        if (readArticlesKeys != null ? !readArticlesKeys.equals(defaultFeed.readArticlesKeys)
-            : defaultFeed.readArticlesKeys != null) return false;
-        if (pinnedArticlesKeys != null ? !pinnedArticlesKeys.equals(defaultFeed.pinnedArticlesKeys)
-            : defaultFeed.pinnedArticlesKeys != null) return false;
+        if (readArticles != null ? !readArticles.equals(defaultFeed.readArticles)
+            : defaultFeed.readArticles != null) return false;
+        if (pinnedArticles != null ? !pinnedArticles.equals(defaultFeed.pinnedArticles)
+            : defaultFeed.pinnedArticles != null) return false;
         if (viewType != defaultFeed.viewType) return false;
         if (viewModeEnabled != defaultFeed.viewModeEnabled) return false;
         if (viewMode != defaultFeed.viewMode) return false;
@@ -308,7 +350,7 @@ public abstract class DefaultOPMLFeed implements FormatConstants
     {
         int result;
         result = title.hashCode();
-        result = 29 * result + (readArticlesKeys != null ? readArticlesKeys.hashCode() : 0);
+        result = 29 * result + (readArticles != null ? readArticles.hashCode() : 0);
         return result;
     }
 
@@ -322,8 +364,8 @@ public abstract class DefaultOPMLFeed implements FormatConstants
         return "Feed: title=" + title +
             ", rating=" + rating +
             ", limit=" + limit +
-            ", readArticlesKeys='" + readArticlesKeys +
-            "', pinnedArticlesKeys='" + pinnedArticlesKeys +
+            ", readArticlesKeys='" + getReadArticlesKeys() +
+            "', pinnedArticlesKeys='" + getPinnedArticlesKeys() +
             "', viewType=" + viewType +
             ", viewModeEnabled=" + viewModeEnabled +
             ", viewMode=" + viewMode +
@@ -35,13 +35,8 @@ public class DirectOPMLFeed extends DataOPMLFeed
     private final String xmlURL;
     private final String htmlURL;
 
-    private final String customTitle;
-    private final String customCreator;
-    private final String customDescription;
-
-    private final String tags;
-    private final String tagsDescription;
-    private final String tagsExtended;
+    /** Rarely set properties or <code>NULL</code> when none of them is set. */
+    private final Details details;
 
     private final boolean disabled;
 
@@ -76,22 +71,75 @@ public class DirectOPMLFeed extends DataOPMLFeed
                           Boolean aAscendingSorting, int aHandlingType
     )
     {
-        super(aTitle, aLimit, aRating, aReadArticlesKeys, aPinnedArticlesKeys, aViewType, aViewModeEnabled, aViewMode,
+        this(aTitle, aXmlURL, aHtmlURL, aRating, ArticleKeys.valueOf(aReadArticlesKeys),
+            ArticleKeys.valueOf(aPinnedArticlesKeys), aLimit, aCustomTitle, aCustomCreator, aCustomDescription,
+            aTags, aTagsDescription, aTagsExtended, aDisabled, aViewType, aViewModeEnabled, aViewMode,
             aAscendingSorting, aHandlingType);
+    }
+
+    /**
+     * Creates new feed with already decoded keys of articles.
+     *
+     * @see #create
+     */
+    private DirectOPMLFeed(String aTitle, String aXmlURL, String aHtmlURL, int aRating,
+                           ArticleKeys aReadArticles, ArticleKeys aPinnedArticles, int aLimit,
+                           String aCustomTitle, String aCustomCreator, String aCustomDescription,
+                           String aTags, String aTagsDescription, String aTagsExtended,
+                           boolean aDisabled, int aViewType, boolean aViewModeEnabled, int aViewMode,
+                           Boolean aAscendingSorting, int aHandlingType)
+    {
+        super(aTitle, aLimit, aRating, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting, aHandlingType,
+            aReadArticles, aPinnedArticles);
 
         xmlURL = aXmlURL;
         htmlURL = aHtmlURL;
-        customTitle = aCustomTitle;
-        customCreator = aCustomCreator;
-        customDescription = aCustomDescription;
-
-        tags = aTags;
-        tagsDescription = aTagsDescription;
-        tagsExtended = aTagsExtended;
+        details = aCustomTitle == null && aCustomCreator == null && aCustomDescription == null &&
+            aTags == null && aTagsDescription == null && aTagsExtended == null
+            ? null
+            : new Details(aCustomTitle, aCustomCreator, aCustomDescription, aTags, aTagsDescription, aTagsExtended);
 
         disabled = aDisabled;
     }
 
+    /**
+     * Creates new feed with already decoded keys of articles. The lists of keys are
+     * built from them only when asked for.
+     *
+     * @param aTitle             title.
+     * @param aXmlURL            URL to XML resource.
+     * @param aHtmlURL           URL to HTML page.
+     * @param aRating            rating of the feed.
+     * @param aReadArticles      keys of read articles or <code>NULL</code>.
+     * @param aPinnedArticles    keys of pinned articles or <code>NULL</code>.
+     * @param aLimit             limit.
+     * @param aCustomTitle       custom title.
+     * @param aCustomCreator     custom creator.
+     * @param aCustomDescription custom description.
+     * @param aTags              list of tags.
+     * @param aTagsDescription   tags description.
+     * @param aTagsExtended      tags extended description.
+     * @param aDisabled          <code>TRUE</code> when feed is disabled.
+     * @param aViewType          view type.
+     * @param aViewModeEnabled   custom view mode state.
+     * @param aViewMode          custom view mode.
+     * @param aAscendingSorting  ascending sorting override flag.
+     * @param aHandlingType      handling type.
+     *
+     * @return feed.
+     */
+    public static DirectOPMLFeed create(String aTitle, String aXmlURL, String aHtmlURL, int aRating,
+                                        ArticleKeys aReadArticles, ArticleKeys aPinnedArticles, int aLimit,
+                                        String aCustomTitle, String aCustomCreator, String aCustomDescription,
+                                        String aTags, String aTagsDescription, String aTagsExtended,
+                                        boolean aDisabled, int aViewType, boolean aViewModeEnabled,
+                                        int aViewMode, Boolean aAscendingSorting, int aHandlingType)
+    {
+        return new DirectOPMLFeed(aTitle, aXmlURL, aHtmlURL, aRating, aReadArticles, aPinnedArticles, aLimit,
+            aCustomTitle, aCustomCreator, aCustomDescription, aTags, aTagsDescription, aTagsExtended,
+            aDisabled, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting, aHandlingType);
+    }
+
     /**
      * Returns URL to XML resource.
      *
@@ -119,7 +167,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getCustomTitle()
     {
-        return customTitle;
+        return details == null ? null : details.customTitle;
     }
 
     /**
@@ -129,7 +177,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getCustomCreator()
     {
-        return customCreator;
+        return details == null ? null : details.customCreator;
     }
 
     /**
@@ -139,7 +187,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getCustomDescription()
     {
-        return customDescription;
+        return details == null ? null : details.customDescription;
     }
 
     /**
@@ -149,7 +197,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getTags()
     {
-        return tags;
+        return details == null ? null : details.tags;
     }
 
     /**
@@ -159,7 +207,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getTagsDescription()
     {
-        return tagsDescription;
+        return details == null ? null : details.tagsDescription;
     }
 
     /**
@@ -169,7 +217,7 @@ public class DirectOPMLFeed extends DataOPMLFeed
      */
     public String getTagsExtended()
     {
-        return tagsExtended;
+        return details == null ? null : details.tagsExtended;
     }
 
     /**
@@ -196,13 +244,16 @@ public class DirectOPMLFeed extends DataOPMLFeed
         outline.setAttribute(ATTR_FEED_XML_URL, xmlURL);
         writeIfSet(outline, ATTR_FEED_HTML_URL, null, htmlURL);
 
-        writeIfSet(outline, ATTR_FEED_CUSTOM_TITLE, bbns, customTitle);
-        writeIfSet(outline, ATTR_FEED_CUSTOM_CREATOR, bbns, customCreator);
-        writeIfSet(outline, ATTR_FEED_CUSTOM_DESCRIPTION, bbns, customDescription);
+        if (details != null)
+        {
+            writeIfSet(outline, ATTR_FEED_CUSTOM_TITLE, bbns, details.customTitle);
+            writeIfSet(outline, ATTR_FEED_CUSTOM_CREATOR, bbns, details.customCreator);
+            writeIfSet(outline, ATTR_FEED_CUSTOM_DESCRIPTION, bbns, details.customDescription);
 
-        writeIfSet(outline, ATTR_TAGS, bbns, tags);
-        writeIfSet(outline, ATTR_TAGS_DESCRIPTION, bbns, tagsDescription);
-        writeIfSet(outline, ATTR_TAGS_EXTENDED, bbns, tagsExtended);
+            writeIfSet(outline, ATTR_TAGS, bbns, details.tags);
+            writeIfSet(outline, ATTR_TAGS_DESCRIPTION, bbns, details.tagsDescription);
+            writeIfSet(outline, ATTR_TAGS_EXTENDED, bbns, details.tagsExtended);
+        }
 
         writeIfSet(outline, ATTR_DISABLED, bbns, extendedExport && disabled);
     }
@@ -222,17 +273,20 @@ public class DirectOPMLFeed extends DataOPMLFeed
 
         final DirectOPMLFeed directFeed = (DirectOPMLFeed)o;
 
+        String customCreator = getCustomCreator();
         if (customCreator != null
-            ? !customCreator.equals(directFeed.customCreator)
-            : directFeed.customCreator != null) return false;
+            ? !customCreator.equals(directFeed.getCustomCreator())
+            : directFeed.getCustomCreator() != null) return false;
 
+        String customDescription = getCustomDescription();
         if (customDescription != null
-            ? !customDescription.equals(directFeed.customDescription)
-            : directFeed.customDescription != null) return false;
+            ? !customDescription.equals(directFeed.getCustomDescription())
+            : directFeed.getCustomDescription() != null) return false;
 
+        String customTitle = getCustomTitle();
         if (customTitle != null
-            ? !customTitle.equals(directFeed.customTitle)
-            : directFeed.customTitle != null) return false;
+            ? !customTitle.equals(directFeed.getCustomTitle())
+            : directFeed.getCustomTitle() != null) return false;
 
         if (htmlURL != null
             ? !htmlURL.equals(directFeed.htmlURL)
@@ -242,13 +296,15 @@ public class DirectOPMLFeed extends DataOPMLFeed
             ? !xmlURL.equals(directFeed.xmlURL)
             : directFeed.xmlURL != null) return false;
 
+        String tags = getTags();
         if (tags != null
-            ? !tags.equals(directFeed.tags)
-            : directFeed.tags != null) return false;
+            ? !tags.equals(directFeed.getTags())
+            : directFeed.getTags() != null) return false;
 
+        String tagsDescription = getTagsDescription();
         return !(tagsDescription != null
-            ? !tagsDescription.equals(directFeed.tagsDescription)
-            : directFeed.tagsDescription != null);
+            ? !tagsDescription.equals(directFeed.getTagsDescription())
+            : directFeed.getTagsDescription() != null);
     }
 
     /**
@@ -259,8 +315,45 @@ public class DirectOPMLFeed extends DataOPMLFeed
     public String toString()
     {
         return super.toString() + ", xmlURL=" + xmlURL + ", htmlURL=" + htmlURL +
-            ", customCreator=" + customCreator + ", customDescription=" + customDescription +
-            ", customTitle=" + customTitle + ", userTags=" + tags +
-            ", tagsDescription=" + tagsDescription + ", disabled=" + disabled;
+            ", customCreator=" + getCustomCreator() + ", customDescription=" + getCustomDescription() +
+            ", customTitle=" + getCustomTitle() + ", userTags=" + getTags() +
+            ", tagsDescription=" + getTagsDescription() + ", disabled=" + disabled;
+    }
+
+    /**
+     * Properties most feeds don't have. Keeping them apart saves six fields per feed
+     * for the bulk of feeds coming from other readers.
+     */
+    private static final class Details
+    {
+        private final String customTitle;
+        private final String customCreator;
+        private final String customDescription;
+
+        private final String tags;
+        private final String tagsDescription;
+        private final String tagsExtended;
+
+        /**
+         * Creates details.
+         *
+         * @param aCustomTitle       custom title.
+         * @param aCustomCreator     custom creator.
+         * @param aCustomDescription custom description.
+         * @param aTags              list of tags.
+         * @param aTagsDescription   tags description.
+         * @param aTagsExtended      tags extended description.
+         */
+        private Details(String aCustomTitle, String aCustomCreator, String aCustomDescription,
+                        String aTags, String aTagsDescription, String aTagsExtended)
+        {
+            customTitle = aCustomTitle;
+            customCreator = aCustomCreator;
+            customDescription = aCustomDescription;
+
+            tags = aTags;
+            tagsDescription = aTagsDescription;
+            tagsExtended = aTagsExtended;
+        }
     }
 }
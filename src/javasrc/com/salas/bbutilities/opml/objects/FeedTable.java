@@ -0,0 +1,716 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only table of feeds kept in columns instead of objects. Each feed is a row with
+ * its numeric properties in parallel primitive arrays and its strings in a single
+ * character buffer addressed by offsets. It takes a fraction of the memory of the feed
+ * objects and is meant for bulk processing of very large guide sets. The feed objects
+ * are created only when asked for.
+ * <p/>
+ * Direct feeds are stored completely in columns. Query and search feeds, which are rare,
+ * have their common properties in columns and are also kept as objects.
+ * <p/>
+ * Tables are created with the {@link Builder}.
+ */
+public final class FeedTable implements Iterable<DefaultOPMLFeed>
+{
+    private static final int TITLE                 = 0;
+    private static final int XML_URL               = 1;
+    private static final int HTML_URL              = 2;
+    private static final int READ_ARTICLES         = 3;
+    private static final int PINNED_ARTICLES       = 4;
+    private static final int CUSTOM_TITLE          = 5;
+    private static final int CUSTOM_CREATOR        = 6;
+    private static final int CUSTOM_DESCRIPTION    = 7;
+    private static final int TAGS                  = 8;
+    private static final int TAGS_DESCRIPTION      = 9;
+    private static final int TAGS_EXTENDED         = 10;
+
+    /** Number of string columns. */
+    private static final int STRINGS               = 11;
+
+    private static final byte FLAG_VIEW_MODE_ENABLED    = 1;
+    private static final byte FLAG_DISABLED             = 2;
+    private static final byte FLAG_SORTING_SET          = 4;
+    private static final byte FLAG_ASCENDING            = 8;
+    private static final byte FLAG_OBJECT               = 16;
+
+    private final int           size;
+    private final OPMLGuide[]   guides;
+
+    private final int[]         guideIndexes;
+    private final int[]         ratings;
+    private final int[]         limits;
+    private final int[]         viewTypes;
+    private final int[]         viewModes;
+    private final int[]         handlingTypes;
+    private final long[]        updatePeriods;
+    private final byte[]        flags;
+
+    /** Strings of all rows. */
+    private final char[]        chars;
+    /** Start offsets of strings, STRINGS per row, followed by the end of the last string. */
+    private final int[]         offsets;
+    /** Indexes of <code>NULL</code> strings in the offsets. */
+    private final BitSet        nulls;
+
+    /** Query and search feeds by their rows. */
+    private final Map<Integer, DefaultOPMLFeed> objects;
+
+    /**
+     * Creates table from the builder.
+     *
+     * @param builder   builder.
+     * @param rootGuide guide to put on top or <code>NULL</code> to keep the order.
+     */
+    private FeedTable(Builder builder, OPMLGuide rootGuide)
+    {
+        size = builder.size;
+
+        List<OPMLGuide> list = new ArrayList<OPMLGuide>(builder.guides);
+        guideIndexes = Arrays.copyOf(builder.guideIndexes, size);
+
+        Integer root = rootGuide == null ? null : builder.guideIndexesMap.get(rootGuide);
+        if (root != null && root > 0)
+        {
+            list.add(0, list.remove((int)root));
+            for (int row = 0; row < size; row++)
+            {
+                int guide = guideIndexes[row];
+                guideIndexes[row] = guide == root ? 0 : guide < root ? guide + 1 : guide;
+            }
+        }
+
+        guides = list.toArray(new OPMLGuide[list.size()]);
+        ratings = Arrays.copyOf(builder.ratings, size);
+        limits = Arrays.copyOf(builder.limits, size);
+        viewTypes = Arrays.copyOf(builder.viewTypes, size);
+        viewModes = Arrays.copyOf(builder.viewModes, size);
+        handlingTypes = Arrays.copyOf(builder.handlingTypes, size);
+        updatePeriods = Arrays.copyOf(builder.updatePeriods, size);
+        flags = Arrays.copyOf(builder.flags, size);
+
+        chars = Arrays.copyOf(builder.chars, builder.charsLength);
+        offsets = Arrays.copyOf(builder.offsets, size * STRINGS + 1);
+        nulls = (BitSet)builder.nulls.clone();
+
+        objects = new HashMap<Integer, DefaultOPMLFeed>(builder.objects);
+    }
+
+    /**
+     * Returns the number of feeds.
+     *
+     * @return number of feeds.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the guides the feeds belong to in the order of appearance, except for the
+     * root guide given to the builder, which goes on top. The guides have no feeds.
+     *
+     * @return guides.
+     */
+    public OPMLGuide[] getGuides()
+    {
+        return guides.clone();
+    }
+
+    /**
+     * Returns the index of the guide the feed belongs to.
+     *
+     * @param row row of the feed.
+     *
+     * @return index of the guide in {@link #getGuides()}.
+     */
+    public int getGuideIndex(int row)
+    {
+        check(row);
+        return guideIndexes[row];
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the feed is a direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return <code>TRUE</code> if the feed is a direct feed.
+     */
+    public boolean isDirect(int row)
+    {
+        return !isSet(row, FLAG_OBJECT);
+    }
+
+    /**
+     * Returns title.
+     *
+     * @param row row of the feed.
+     *
+     * @return title.
+     */
+    public String getTitle(int row)
+    {
+        return getString(row, TITLE);
+    }
+
+    /**
+     * Returns URL to XML resource of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return URL or <code>NULL</code>.
+     */
+    public String getXmlURL(int row)
+    {
+        return getString(row, XML_URL);
+    }
+
+    /**
+     * Returns URL to HTML page of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return URL or <code>NULL</code>.
+     */
+    public String getHtmlURL(int row)
+    {
+        return getString(row, HTML_URL);
+    }
+
+    /**
+     * Returns list of keys of read articles.
+     *
+     * @param row row of the feed.
+     *
+     * @return list of keys or <code>NULL</code>.
+     */
+    public String getReadArticlesKeys(int row)
+    {
+        return getString(row, READ_ARTICLES);
+    }
+
+    /**
+     * Returns list of keys of pinned articles.
+     *
+     * @param row row of the feed.
+     *
+     * @return list of keys or <code>NULL</code>.
+     */
+    public String getPinnedArticlesKeys(int row)
+    {
+        return getString(row, PINNED_ARTICLES);
+    }
+
+    /**
+     * Returns custom title of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return custom title or <code>NULL</code>.
+     */
+    public String getCustomTitle(int row)
+    {
+        return getString(row, CUSTOM_TITLE);
+    }
+
+    /**
+     * Returns custom creator of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return custom creator or <code>NULL</code>.
+     */
+    public String getCustomCreator(int row)
+    {
+        return getString(row, CUSTOM_CREATOR);
+    }
+
+    /**
+     * Returns custom description of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return custom description or <code>NULL</code>.
+     */
+    public String getCustomDescription(int row)
+    {
+        return getString(row, CUSTOM_DESCRIPTION);
+    }
+
+    /**
+     * Returns user tags of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return tags or <code>NULL</code>.
+     */
+    public String getTags(int row)
+    {
+        return getString(row, TAGS);
+    }
+
+    /**
+     * Returns tags description of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return description or <code>NULL</code>.
+     */
+    public String getTagsDescription(int row)
+    {
+        return getString(row, TAGS_DESCRIPTION);
+    }
+
+    /**
+     * Returns tags extended description of the direct feed.
+     *
+     * @param row row of the feed.
+     *
+     * @return description or <code>NULL</code>.
+     */
+    public String getTagsExtended(int row)
+    {
+        return getString(row, TAGS_EXTENDED);
+    }
+
+    /**
+     * Returns rating.
+     *
+     * @param row row of the feed.
+     *
+     * @return rating.
+     */
+    public int getRating(int row)
+    {
+        check(row);
+        return ratings[row];
+    }
+
+    /**
+     * Returns purge limit.
+     *
+     * @param row row of the feed.
+     *
+     * @return limit.
+     */
+    public int getLimit(int row)
+    {
+        check(row);
+        return limits[row];
+    }
+
+    /**
+     * Returns view type.
+     *
+     * @param row row of the feed.
+     *
+     * @return view type.
+     */
+    public int getViewType(int row)
+    {
+        check(row);
+        return viewTypes[row];
+    }
+
+    /**
+     * Returns <code>TRUE</code> if custom view mode is enabled.
+     *
+     * @param row row of the feed.
+     *
+     * @return <code>TRUE</code> if custom view mode is enabled.
+     */
+    public boolean isViewModeEnabled(int row)
+    {
+        return isSet(row, FLAG_VIEW_MODE_ENABLED);
+    }
+
+    /**
+     * Returns custom view mode.
+     *
+     * @param row row of the feed.
+     *
+     * @return view mode.
+     */
+    public int getViewMode(int row)
+    {
+        check(row);
+        return viewModes[row];
+    }
+
+    /**
+     * Returns ascending sorting flag.
+     *
+     * @param row row of the feed.
+     *
+     * @return flag or <code>NULL</code> if not overridden.
+     */
+    public Boolean getAscendingSorting(int row)
+    {
+        return isSet(row, FLAG_SORTING_SET) ? Boolean.valueOf(isSet(row, FLAG_ASCENDING)) : null;
+    }
+
+    /**
+     * Returns handling type.
+     *
+     * @param row row of the feed.
+     *
+     * @return handling type.
+     */
+    public int getHandlingType(int row)
+    {
+        check(row);
+        return handlingTypes[row];
+    }
+
+    /**
+     * Returns update period.
+     *
+     * @param row row of the feed.
+     *
+     * @return period or <code>0</code> if not set.
+     */
+    public long getUpdatePeriod(int row)
+    {
+        check(row);
+        return updatePeriods[row];
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the direct feed is disabled.
+     *
+     * @param row row of the feed.
+     *
+     * @return <code>TRUE</code> if disabled.
+     */
+    public boolean isDisabled(int row)
+    {
+        return isSet(row, FLAG_DISABLED);
+    }
+
+    /**
+     * Returns the feed object for the row. Direct feeds are created anew on each call. Query
+     * and search feeds are the objects that were added, shared by all calls.
+     *
+     * @param row row of the feed.
+     *
+     * @return feed.
+     */
+    public DefaultOPMLFeed getFeed(int row)
+    {
+        if (!isDirect(row)) return objects.get(row);
+
+        DirectOPMLFeed feed = new DirectOPMLFeed(getTitle(row), getXmlURL(row), getHtmlURL(row),
+            ratings[row], getReadArticlesKeys(row), getPinnedArticlesKeys(row), limits[row],
+            getCustomTitle(row), getCustomCreator(row), getCustomDescription(row), getTags(row),
+            getTagsDescription(row), getTagsExtended(row), isDisabled(row), viewTypes[row],
+            isViewModeEnabled(row), viewModes[row], getAscendingSorting(row), handlingTypes[row]);
+        if (updatePeriods[row] > 0) feed.setUpdatePeriod(updatePeriods[row]);
+
+        return feed;
+    }
+
+    /**
+     * Returns iterator returning the feed objects one by one (see {@link #getFeed(int)}).
+     *
+     * @return iterator.
+     */
+    public Iterator<DefaultOPMLFeed> iterator()
+    {
+        return new Iterator<DefaultOPMLFeed>()
+        {
+            private int row;
+
+            public boolean hasNext()
+            {
+                return row < size;
+            }
+
+            public DefaultOPMLFeed next()
+            {
+                if (row >= size) throw new NoSuchElementException();
+                return getFeed(row++);
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Creates the guides with all their feeds and reading lists. Each call creates new guides
+     * and direct feeds. Query and search feeds and reading lists are the objects that were
+     * added and are shared by all calls.
+     *
+     * @return guides.
+     */
+    public OPMLGuide[] toGuides()
+    {
+        OPMLGuide[] copies = new OPMLGuide[guides.length];
+        for (int i = 0; i < guides.length; i++)
+        {
+            OPMLGuide guide = guides[i];
+            copies[i] = new OPMLGuide(guide.getTitle(), guide.getIcon(), guide.isPublishingEnabled(),
+                guide.getPublishingTitle(), guide.getPublishingTags(), guide.isPublishingPublic(),
+                guide.getPublishingRating(), guide.isAutoFeedsDiscovery(), guide.isNotificationsAllowed(),
+                guide.isMobile());
+            for (OPMLReadingList list : guide.getReadingLists()) copies[i].add(list);
+        }
+
+        for (int row = 0; row < size; row++) copies[guideIndexes[row]].getFeeds().add(getFeed(row));
+
+        return copies;
+    }
+
+    /**
+     * Returns string from the column.
+     *
+     * @param row       row.
+     * @param column    column.
+     *
+     * @return string or <code>NULL</code>.
+     */
+    private String getString(int row, int column)
+    {
+        check(row);
+
+        int index = row * STRINGS + column;
+        if (nulls.get(index)) return null;
+
+        int start = offsets[index];
+        return new String(chars, start, offsets[index + 1] - start);
+    }
+
+    /**
+     * Returns <code>TRUE</code> if the flag is set for the row.
+     *
+     * @param row   row.
+     * @param flag  flag.
+     *
+     * @return <code>TRUE</code> if set.
+     */
+    private boolean isSet(int row, byte flag)
+    {
+        check(row);
+        return (flags[row] & flag) != 0;
+    }
+
+    /**
+     * Checks the row index.
+     *
+     * @param row row.
+     *
+     * @throws IndexOutOfBoundsException if there's no such row.
+     */
+    private void check(int row)
+    {
+        if (row < 0 || row >= size) throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+    }
+
+    /**
+     * Builder of the table. Feeds are added to the guide started last. The builder
+     * isn't thread-safe.
+     */
+    public static final class Builder
+    {
+        private final List<OPMLGuide>               guides = new ArrayList<OPMLGuide>();
+        private final Map<OPMLGuide, Integer>       guideIndexesMap = new IdentityHashMap<OPMLGuide, Integer>();
+        private int                                 guide = -1;
+
+        private int     size;
+        private int[]   guideIndexes = new int[16];
+        private int[]   ratings = new int[16];
+        private int[]   limits = new int[16];
+        private int[]   viewTypes = new int[16];
+        private int[]   viewModes = new int[16];
+        private int[]   handlingTypes = new int[16];
+        private long[]  updatePeriods = new long[16];
+        private byte[]  flags = new byte[16];
+
+        private char[]  chars = new char[1024];
+        private int     charsLength;
+        private int[]   offsets = new int[16 * STRINGS + 1];
+        private final BitSet nulls = new BitSet();
+
+        private final Map<Integer, DefaultOPMLFeed> objects = new HashMap<Integer, DefaultOPMLFeed>();
+
+        /**
+         * Starts the guide. The guide which was started before continues where it stopped.
+         *
+         * @param aGuide guide.
+         */
+        public void startGuide(OPMLGuide aGuide)
+        {
+            Integer index = guideIndexesMap.get(aGuide);
+            if (index == null)
+            {
+                index = guides.size();
+                guides.add(aGuide);
+                guideIndexesMap.put(aGuide, index);
+            }
+
+            guide = index;
+        }
+
+        /**
+         * Adds the feed to the current guide.
+         *
+         * @param feed feed.
+         *
+         * @throws IllegalStateException if no guide is started.
+         */
+        public void add(DefaultOPMLFeed feed)
+        {
+            if (guide == -1) throw new IllegalStateException("No guide started.");
+            if (size == ratings.length) grow();
+
+            int row = size++;
+            guideIndexes[row] = guide;
+            ratings[row] = feed.getRating();
+            limits[row] = feed.getLimit();
+            viewTypes[row] = feed.getViewType();
+            viewModes[row] = feed.getViewMode();
+            handlingTypes[row] = feed.getHandlingType();
+
+            Long period = feed instanceof DataOPMLFeed ? ((DataOPMLFeed)feed).getUpdatePeriod() : null;
+            updatePeriods[row] = period == null ? 0 : period;
+
+            byte flag = 0;
+            if (feed.isViewModeEnabled()) flag |= FLAG_VIEW_MODE_ENABLED;
+            Boolean ascending = feed.getAscendingSorting();
+            if (ascending != null) flag |= ascending ? FLAG_SORTING_SET | FLAG_ASCENDING : FLAG_SORTING_SET;
+
+            String[] strings = new String[STRINGS];
+            strings[TITLE] = feed.getTitle();
+            strings[READ_ARTICLES] = feed.getReadArticlesKeys();
+            strings[PINNED_ARTICLES] = feed.getPinnedArticlesKeys();
+
+            if (feed instanceof DirectOPMLFeed)
+            {
+                DirectOPMLFeed direct = (DirectOPMLFeed)feed;
+                if (direct.isDisabled()) flag |= FLAG_DISABLED;
+
+                strings[XML_URL] = direct.getXmlURL();
+                strings[HTML_URL] = direct.getHtmlURL();
+                strings[CUSTOM_TITLE] = direct.getCustomTitle();
+                strings[CUSTOM_CREATOR] = direct.getCustomCreator();
+                strings[CUSTOM_DESCRIPTION] = direct.getCustomDescription();
+                strings[TAGS] = direct.getTags();
+                strings[TAGS_DESCRIPTION] = direct.getTagsDescription();
+                strings[TAGS_EXTENDED] = direct.getTagsExtended();
+            } else
+            {
+                flag |= FLAG_OBJECT;
+                objects.put(row, feed);
+            }
+
+            flags[row] = flag;
+            for (int i = 0; i < STRINGS; i++) append(row * STRINGS + i, strings[i]);
+        }
+
+        /**
+         * Builds the table. The builder can be used further.
+         *
+         * @return table.
+         */
+        public FeedTable build()
+        {
+            return build(null);
+        }
+
+        /**
+         * Builds the table with the root guide on top, where the importer puts it in the
+         * guide sets. The builder can be used further.
+         *
+         * @param rootGuide root guide or <code>NULL</code> if there's none.
+         *
+         * @return table.
+         */
+        public FeedTable build(OPMLGuide rootGuide)
+        {
+            return new FeedTable(this, rootGuide);
+        }
+
+        /**
+         * Appends the string to the storage.
+         *
+         * @param index     index of the string.
+         * @param string    string or <code>NULL</code>.
+         */
+        private void append(int index, String string)
+        {
+            offsets[index] = charsLength;
+            if (string == null)
+            {
+                nulls.set(index);
+            } else
+            {
+                int length = string.length();
+                if (charsLength + length > chars.length)
+                {
+                    chars = Arrays.copyOf(chars, Math.max(chars.length * 2, charsLength + length));
+                }
+
+                string.getChars(0, length, chars, charsLength);
+                charsLength += length;
+            }
+
+            offsets[index + 1] = charsLength;
+        }
+
+        /**
+         * Doubles the capacity of the columns.
+         */
+        private void grow()
+        {
+            int capacity = ratings.length * 2;
+
+            guideIndexes = Arrays.copyOf(guideIndexes, capacity);
+            ratings = Arrays.copyOf(ratings, capacity);
+            limits = Arrays.copyOf(limits, capacity);
+            viewTypes = Arrays.copyOf(viewTypes, capacity);
+            viewModes = Arrays.copyOf(viewModes, capacity);
+            handlingTypes = Arrays.copyOf(handlingTypes, capacity);
+            updatePeriods = Arrays.copyOf(updatePeriods, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            offsets = Arrays.copyOf(offsets, capacity * STRINGS + 1);
+        }
+    }
+}
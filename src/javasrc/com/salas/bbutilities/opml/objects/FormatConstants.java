@@ -50,6 +50,8 @@ public interface FormatConstants
     String ATTR_FEED_LIMIT              = "limit";
     String ATTR_FEED_READ_ARTICLES      = "readArticles";
     String ATTR_FEED_PINNED_ARTICLES    = "pinnedArticles";
+    String ATTR_FEED_READ_ARTICLES_PACKED   = "readArticlesPacked";
+    String ATTR_FEED_PINNED_ARTICLES_PACKED = "pinnedArticlesPacked";
     String ATTR_FEED_XML_URL            = "xmlUrl";
     String ATTR_FEED_VIEW_TYPE          = "viewtype";
     String ATTR_FEED_VIEW_MODE_ENABLED  = "viewModeEnabled";
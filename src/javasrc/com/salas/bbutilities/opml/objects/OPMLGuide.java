@@ -243,21 +243,7 @@ public class OPMLGuide implements FormatConstants
      */
     public void write(Element outline, Namespace bbns, boolean extendedExport)
     {
-        outline.setAttribute(ATTR_GUIDE_TITLE, title);
-        if (icon != null) outline.setAttribute(ATTR_GUIDE_ICON, icon, bbns);
-
-        if (extendedExport)
-        {
-            if (publishingEnabled) outline.setAttribute(ATTR_GUIDE_PUB_ENABLED, "true", bbns);
-            if (publishingTitle != null) outline.setAttribute(ATTR_GUIDE_PUB_TITLE, publishingTitle, bbns);
-            if (publishingTags != null) outline.setAttribute(ATTR_GUIDE_PUB_TAGS, publishingTags, bbns);
-            if (publishingPublic) outline.setAttribute(ATTR_GUIDE_PUB_PUBLIC, "true", bbns);
-            if (notificationsAllowed) outline.setAttribute(ATTR_GUIDE_NOTIFICATIONS_ALLOWED, "true", bbns);
-            if (autoFeedsDiscovery) outline.setAttribute(ATTR_GUIDE_AUTO_FEEDS_DISCOVERY, "true", bbns);
-            if (mobile) outline.setAttribute(ATTR_GUIDE_MOBILE, "true", bbns);
-
-            outline.setAttribute(ATTR_GUIDE_PUB_RATING, Integer.toString(publishingRating), bbns);
-        }
+        writeAttributes(outline, bbns, extendedExport);
 
         for (OPMLReadingList list : readingLists)
         {
@@ -277,6 +263,32 @@ public class OPMLGuide implements FormatConstants
         }
     }
 
+    /**
+     * Writes guide attributes to the outline. Reading lists and feeds aren't written.
+     *
+     * @param outline           outline to write guide attributes to.
+     * @param bbns              BB namespace.
+     * @param extendedExport    <code>TRUE</code> to write extended information.
+     */
+    public void writeAttributes(Element outline, Namespace bbns, boolean extendedExport)
+    {
+        outline.setAttribute(ATTR_GUIDE_TITLE, title);
+        if (icon != null) outline.setAttribute(ATTR_GUIDE_ICON, icon, bbns);
+
+        if (extendedExport)
+        {
+            if (publishingEnabled) outline.setAttribute(ATTR_GUIDE_PUB_ENABLED, "true", bbns);
+            if (publishingTitle != null) outline.setAttribute(ATTR_GUIDE_PUB_TITLE, publishingTitle, bbns);
+            if (publishingTags != null) outline.setAttribute(ATTR_GUIDE_PUB_TAGS, publishingTags, bbns);
+            if (publishingPublic) outline.setAttribute(ATTR_GUIDE_PUB_PUBLIC, "true", bbns);
+            if (notificationsAllowed) outline.setAttribute(ATTR_GUIDE_NOTIFICATIONS_ALLOWED, "true", bbns);
+            if (autoFeedsDiscovery) outline.setAttribute(ATTR_GUIDE_AUTO_FEEDS_DISCOVERY, "true", bbns);
+            if (mobile) outline.setAttribute(ATTR_GUIDE_MOBILE, "true", bbns);
+
+            outline.setAttribute(ATTR_GUIDE_PUB_RATING, Integer.toString(publishingRating), bbns);
+        }
+    }
+
     /**
      * Compares this object to the other.
      *
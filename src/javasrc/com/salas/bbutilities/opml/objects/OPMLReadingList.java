@@ -102,9 +102,7 @@ public class OPMLReadingList implements FormatConstants
      */
     public void write(Element outline, Namespace bbns, boolean extendedExport)
     {
-        outline.setAttribute(ATTR_FEED_TYPE, "list");
-        outline.setAttribute(ATTR_READING_LIST_TITLE, title);
-        outline.setAttribute(ATTR_READING_LIST_URL, url);
+        writeAttributes(outline);
 
         for (DefaultOPMLFeed feed : feeds)
         {
@@ -117,6 +115,18 @@ public class OPMLReadingList implements FormatConstants
         }
     }
 
+    /**
+     * Writes list attributes to the outline. Feeds aren't written.
+     *
+     * @param outline outline to write list attributes to.
+     */
+    public void writeAttributes(Element outline)
+    {
+        outline.setAttribute(ATTR_FEED_TYPE, "list");
+        outline.setAttribute(ATTR_READING_LIST_TITLE, title);
+        outline.setAttribute(ATTR_READING_LIST_URL, url);
+    }
+
     /**
      * Returns <code>TRUE</code> if objects are equal.
      *
@@ -62,14 +62,58 @@ public class QueryOPMLFeed extends DataOPMLFeed
         int aViewType, boolean aViewModeEnabled, int aViewMode, Boolean aAscendingSorting,
         int aHandlingType)
     {
-        super(aTitle, aLimit, aRating, aReadArticlesKeys, aPinnedArticlesKeys,
-            aViewType, aViewModeEnabled, aViewMode, aAscendingSorting, aHandlingType);
+        this(aTitle, aQueryType, aQueryParam, aXmlURL, ArticleKeys.valueOf(aReadArticlesKeys),
+            ArticleKeys.valueOf(aPinnedArticlesKeys), aLimit, aRating, aViewType, aViewModeEnabled,
+            aViewMode, aAscendingSorting, aHandlingType);
+    }
+
+    /**
+     * Creates holder with already decoded keys of articles.
+     *
+     * @see #create
+     */
+    private QueryOPMLFeed(String aTitle, int aQueryType, String aQueryParam, String aXmlURL,
+        ArticleKeys aReadArticles, ArticleKeys aPinnedArticles, int aLimit, int aRating,
+        int aViewType, boolean aViewModeEnabled, int aViewMode, Boolean aAscendingSorting,
+        int aHandlingType)
+    {
+        super(aTitle, aLimit, aRating, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting,
+            aHandlingType, aReadArticles, aPinnedArticles);
 
         queryType = aQueryType;
         queryParam = aQueryParam;
         xmlURL = aXmlURL;
     }
 
+    /**
+     * Creates holder with already decoded keys of articles. The lists of keys are built
+     * from them only when asked for.
+     *
+     * @param aTitle            title of feed.
+     * @param aQueryType        type of query.
+     * @param aQueryParam       parameter for query.
+     * @param aXmlURL           XML URL corresponding to this query.
+     * @param aReadArticles     keys of read articles or <code>NULL</code>.
+     * @param aPinnedArticles   keys of pinned articles or <code>NULL</code>.
+     * @param aLimit            articles (purge) limit.
+     * @param aRating           rating of the feed.
+     * @param aViewType         view type.
+     * @param aViewModeEnabled  custom view mode state.
+     * @param aViewMode         custom view mode.
+     * @param aAscendingSorting ascending sorting override flag.
+     * @param aHandlingType     handling type.
+     *
+     * @return holder.
+     */
+    public static QueryOPMLFeed create(String aTitle, int aQueryType, String aQueryParam, String aXmlURL,
+        ArticleKeys aReadArticles, ArticleKeys aPinnedArticles, int aLimit, int aRating,
+        int aViewType, boolean aViewModeEnabled, int aViewMode, Boolean aAscendingSorting,
+        int aHandlingType)
+    {
+        return new QueryOPMLFeed(aTitle, aQueryType, aQueryParam, aXmlURL, aReadArticles, aPinnedArticles,
+            aLimit, aRating, aViewType, aViewModeEnabled, aViewMode, aAscendingSorting, aHandlingType);
+    }
+
     /**
      * Returns remove duplicates flag.
      *
@@ -0,0 +1,82 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.snapshot;
+
+/**
+ * Constants of the snapshot format. All numbers are big-endian.
+ * <p/>
+ * The snapshot starts with the magic number and the version. Then go the string table
+ * (number of strings followed by the strings as the length in bytes and UTF-8 bytes),
+ * the index of the set title, the modification time, the number of guides and the
+ * positions of the guides from the start of the snapshot. The guides follow, each in a
+ * block which can be decoded independently. Strings are referred to by their index in
+ * the table, or by <code>-1</code> when <code>NULL</code>.
+ */
+interface SnapshotConstants
+{
+    /** Magic number: "BBSS". */
+    int MAGIC                       = 0x42425353;
+
+    /** Current version of the format. */
+    short VERSION                   = 1;
+
+    /** Index of <code>NULL</code> string. */
+    int NULL_STRING                 = -1;
+
+    /** Modification time when there's no date. */
+    long NO_DATE                    = Long.MIN_VALUE;
+
+    /** Kind of the direct feed. */
+    byte KIND_DIRECT                = 1;
+    /** Kind of the query feed. */
+    byte KIND_QUERY                 = 2;
+    /** Kind of the search feed. */
+    byte KIND_SEARCH                = 3;
+
+    /** Ascending sorting isn't overridden. */
+    byte SORTING_DEFAULT            = 0;
+    /** Descending sorting. */
+    byte SORTING_DESCENDING         = 1;
+    /** Ascending sorting. */
+    byte SORTING_ASCENDING          = 2;
+
+    /** Feed flag: custom view mode is enabled. */
+    byte FEED_VIEW_MODE_ENABLED     = 1;
+    /** Feed flag: feed is disabled. */
+    byte FEED_DISABLED              = 2;
+    /** Feed flag: duplicates are removed. */
+    byte FEED_DEDUP_ENABLED         = 4;
+
+    /** Guide flag: publishing is enabled. */
+    byte GUIDE_PUBLISHING_ENABLED   = 1;
+    /** Guide flag: publishing is public. */
+    byte GUIDE_PUBLISHING_PUBLIC    = 2;
+    /** Guide flag: automatic feeds discovery. */
+    byte GUIDE_AUTO_FEEDS_DISCOVERY = 4;
+    /** Guide flag: notifications are allowed. */
+    byte GUIDE_NOTIFICATIONS        = 8;
+    /** Guide flag: mobile guide. */
+    byte GUIDE_MOBILE               = 16;
+}
@@ -0,0 +1,407 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.snapshot;
+
+import com.salas.bbutilities.opml.ImporterException;
+import com.salas.bbutilities.opml.objects.*;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reader of the snapshots written by {@link SnapshotWriter}. Only the header and the
+ * positions of the strings are read when the reader is created. The guides are decoded
+ * when asked for, and the strings when they are met for the first time.
+ * <p/>
+ * The reader can be used from several threads.
+ *
+ * @see SnapshotConstants
+ */
+public final class SnapshotReader implements SnapshotConstants
+{
+    private final ByteBuffer buffer;
+
+    private final int[]     stringPositions;
+    private final String[]  strings;
+
+    private final String    title;
+    private final Date      dateModified;
+    private final int[]     guidePositions;
+
+    /**
+     * Creates reader of the snapshot in the buffer. The snapshot is taken from the position
+     * of the buffer, which isn't changed.
+     *
+     * @param aBuffer buffer with the snapshot.
+     *
+     * @throws ImporterException if the data isn't a snapshot of supported version.
+     */
+    public SnapshotReader(ByteBuffer aBuffer)
+        throws ImporterException
+    {
+        buffer = aBuffer.slice();
+
+        try
+        {
+            ByteBuffer in = buffer.duplicate();
+            if (in.getInt() != MAGIC) throw ImporterException.parsing("Not a snapshot.");
+
+            short version = in.getShort();
+            if (version != VERSION) throw ImporterException.parsing("Unsupported snapshot version: " + version);
+
+            int count = in.getInt();
+            if (count < 0 || count > in.remaining() / 4) throw corrupted();
+            stringPositions = new int[count];
+            strings = new String[count];
+            for (int i = 0; i < count; i++)
+            {
+                stringPositions[i] = in.position();
+                int length = in.getInt();
+                if (length < 0) throw corrupted();
+                in.position(in.position() + length);
+            }
+
+            int titleIndex = in.getInt();
+            long time = in.getLong();
+
+            count = in.getInt();
+            if (count < 0 || count > in.remaining() / 4) throw corrupted();
+            guidePositions = new int[count];
+            for (int i = 0; i < count; i++) guidePositions[i] = in.getInt();
+
+            title = getString(titleIndex);
+            dateModified = time == NO_DATE ? null : new Date(time);
+        } catch (BufferUnderflowException e)
+        {
+            throw corrupted();
+        } catch (IllegalArgumentException e)
+        {
+            throw corrupted();
+        }
+    }
+
+    /**
+     * Opens the snapshot file. The file is mapped into memory, so it's not read
+     * until the data is required.
+     *
+     * @param path path to the file.
+     *
+     * @return reader.
+     *
+     * @throws ImporterException if the file can't be read or isn't a snapshot.
+     */
+    public static SnapshotReader open(Path path)
+        throws ImporterException
+    {
+        ByteBuffer buffer;
+        try
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            try
+            {
+                long size = channel.size();
+                if (size > Integer.MAX_VALUE) throw ImporterException.parsing("Snapshot is too large.");
+
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } finally
+            {
+                // The mapping stays valid when the channel is closed
+                channel.close();
+            }
+        } catch (IOException e)
+        {
+            throw ImporterException.io(e);
+        }
+
+        return new SnapshotReader(buffer);
+    }
+
+    /**
+     * Returns the title of the set.
+     *
+     * @return title.
+     */
+    public String getTitle()
+    {
+        return title;
+    }
+
+    /**
+     * Returns the date of the set modification.
+     *
+     * @return date or <code>NULL</code>.
+     */
+    public Date getDateModified()
+    {
+        return dateModified;
+    }
+
+    /**
+     * Returns the number of guides.
+     *
+     * @return number of guides.
+     */
+    public int getGuideCount()
+    {
+        return guidePositions.length;
+    }
+
+    /**
+     * Decodes the guide with its reading lists and feeds. Each call creates new objects.
+     *
+     * @param index index of the guide.
+     *
+     * @return guide.
+     *
+     * @throws ImporterException if the snapshot is corrupted.
+     */
+    public OPMLGuide getGuide(int index)
+        throws ImporterException
+    {
+        try
+        {
+            ByteBuffer in = buffer.duplicate();
+            in.position(guidePositions[index]);
+            return readGuide(in);
+        } catch (BufferUnderflowException e)
+        {
+            throw corrupted();
+        } catch (IllegalArgumentException e)
+        {
+            throw corrupted();
+        }
+    }
+
+    /**
+     * Decodes the whole set.
+     *
+     * @return set.
+     *
+     * @throws ImporterException if the snapshot is corrupted.
+     */
+    public OPMLGuideSet getGuideSet()
+        throws ImporterException
+    {
+        OPMLGuide[] guides = new OPMLGuide[guidePositions.length];
+        for (int i = 0; i < guides.length; i++) guides[i] = getGuide(i);
+
+        return new OPMLGuideSet(title, guides, dateModified);
+    }
+
+    /**
+     * Reads the guide.
+     *
+     * @param in buffer positioned at the guide.
+     *
+     * @return guide.
+     *
+     * @throws ImporterException if the snapshot is corrupted.
+     */
+    private OPMLGuide readGuide(ByteBuffer in)
+        throws ImporterException
+    {
+        String guideTitle = readString(in);
+        String icon = readString(in);
+        String publishingTitle = readString(in);
+        String publishingTags = readString(in);
+        int publishingRating = in.getInt();
+        int flags = in.get();
+
+        OPMLGuide guide = new OPMLGuide(guideTitle, icon, (flags & GUIDE_PUBLISHING_ENABLED) != 0,
+            publishingTitle, publishingTags, (flags & GUIDE_PUBLISHING_PUBLIC) != 0, publishingRating,
+            (flags & GUIDE_AUTO_FEEDS_DISCOVERY) != 0, (flags & GUIDE_NOTIFICATIONS) != 0,
+            (flags & GUIDE_MOBILE) != 0);
+
+        int lists = in.getInt();
+        for (int i = 0; i < lists; i++)
+        {
+            OPMLReadingList list = new OPMLReadingList(readString(in), readString(in));
+
+            int count = in.getInt();
+            List<DirectOPMLFeed> feeds = new ArrayList<DirectOPMLFeed>(Math.min(count, in.remaining()));
+            for (int j = 0; j < count; j++)
+            {
+                DefaultOPMLFeed feed = readFeed(in);
+                if (!(feed instanceof DirectOPMLFeed)) throw corrupted();
+                feeds.add((DirectOPMLFeed)feed);
+            }
+
+            list.setFeeds(feeds);
+            guide.add(list);
+        }
+
+        int count = in.getInt();
+        List<DefaultOPMLFeed> feeds = guide.getFeeds();
+        for (int i = 0; i < count; i++) feeds.add(readFeed(in));
+
+        return guide;
+    }
+
+    /**
+     * Reads the feed.
+     *
+     * @param in buffer positioned at the feed.
+     *
+     * @return feed.
+     *
+     * @throws ImporterException if the snapshot is corrupted.
+     */
+    private DefaultOPMLFeed readFeed(ByteBuffer in)
+        throws ImporterException
+    {
+        byte kind = in.get();
+        int flags = in.get();
+        String feedTitle = readString(in);
+        int limit = in.getInt();
+        int rating = in.getInt();
+        String readArticles = readString(in);
+        String pinnedArticles = readString(in);
+        int viewType = in.getInt();
+        int viewMode = in.getInt();
+        int handlingType = in.getInt();
+        byte sorting = in.get();
+
+        boolean viewModeEnabled = (flags & FEED_VIEW_MODE_ENABLED) != 0;
+        Boolean ascending = sorting == SORTING_DEFAULT ? null : Boolean.valueOf(sorting == SORTING_ASCENDING);
+
+        DefaultOPMLFeed feed;
+        switch (kind)
+        {
+            case KIND_DIRECT:
+                DirectOPMLFeed direct = new DirectOPMLFeed(feedTitle, readString(in), readString(in), rating,
+                    readArticles, pinnedArticles, limit, readString(in), readString(in), readString(in),
+                    readString(in), readString(in), readString(in), (flags & FEED_DISABLED) != 0, viewType,
+                    viewModeEnabled, viewMode, ascending, handlingType);
+                readUpdatePeriod(in, direct);
+                feed = direct;
+                break;
+
+            case KIND_QUERY:
+                QueryOPMLFeed query = new QueryOPMLFeed(feedTitle, in.getInt(), readString(in), readString(in),
+                    readArticles, pinnedArticles, limit, rating, viewType, viewModeEnabled, viewMode, ascending,
+                    handlingType);
+                query.setDedupEnabled((flags & FEED_DEDUP_ENABLED) != 0);
+                query.setDedupFrom(in.getInt());
+                query.setDedupTo(in.getInt());
+                readUpdatePeriod(in, query);
+                feed = query;
+                break;
+
+            case KIND_SEARCH:
+                SearchOPMLFeed search = new SearchOPMLFeed(feedTitle, readString(in), limit, rating, viewType,
+                    viewModeEnabled, viewMode, ascending, handlingType);
+                search.setDedupEnabled((flags & FEED_DEDUP_ENABLED) != 0);
+                search.setDedupFrom(in.getInt());
+                search.setDedupTo(in.getInt());
+                feed = search;
+                break;
+
+            default:
+                throw corrupted();
+        }
+
+        return feed;
+    }
+
+    /**
+     * Reads the update period of the feed.
+     *
+     * @param in    buffer positioned at the period.
+     * @param feed  feed.
+     */
+    private static void readUpdatePeriod(ByteBuffer in, DataOPMLFeed feed)
+    {
+        long period = in.getLong();
+        if (period != 0) feed.setUpdatePeriod(period);
+    }
+
+    /**
+     * Reads the string referred to at the position of the buffer.
+     *
+     * @param in buffer.
+     *
+     * @return string or <code>NULL</code>.
+     *
+     * @throws ImporterException if the snapshot is corrupted.
+     */
+    private String readString(ByteBuffer in)
+        throws ImporterException
+    {
+        return getString(in.getInt());
+    }
+
+    /**
+     * Returns the string from the table. Strings are decoded once.
+     *
+     * @param index index of the string or <code>NULL_STRING</code>.
+     *
+     * @return string or <code>NULL</code>.
+     *
+     * @throws ImporterException if there's no such string.
+     */
+    private String getString(int index)
+        throws ImporterException
+    {
+        if (index == NULL_STRING) return null;
+        if (index < 0 || index >= strings.length) throw corrupted();
+
+        String string = strings[index];
+        if (string == null)
+        {
+            int position = stringPositions[index];
+            int length = buffer.getInt(position);
+            if (length > buffer.limit() - position - 4) throw corrupted();
+
+            byte[] bytes = new byte[length];
+            ByteBuffer in = buffer.duplicate();
+            in.position(position + 4);
+            in.get(bytes);
+
+            // Racing threads decode the same string, which is harmless
+            string = new String(bytes, StandardCharsets.UTF_8);
+            strings[index] = string;
+        }
+
+        return string;
+    }
+
+    /**
+     * Creates exception for the corrupted snapshot.
+     *
+     * @return exception.
+     */
+    private static ImporterException corrupted()
+    {
+        return ImporterException.parsing("Snapshot is corrupted.");
+    }
+}
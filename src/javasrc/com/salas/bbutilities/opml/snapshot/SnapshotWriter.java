@@ -0,0 +1,300 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.snapshot;
+
+import com.salas.bbutilities.opml.objects.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writer of the binary snapshots of guide sets. The snapshot is loaded back with
+ * {@link SnapshotReader} much faster than the OPML is parsed. Each distinct string
+ * is written once.
+ *
+ * @see SnapshotConstants
+ */
+public final class SnapshotWriter implements SnapshotConstants
+{
+    private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * Creates writer for a single set.
+     */
+    private SnapshotWriter()
+    {
+    }
+
+    /**
+     * Writes the snapshot of the set to the file.
+     *
+     * @param set   set.
+     * @param path  path to the file, which is replaced if exists.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    public static void write(OPMLGuideSet set, Path path)
+        throws IOException
+    {
+        OutputStream out = Files.newOutputStream(path);
+        try
+        {
+            write(set, out);
+        } finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the snapshot of the set to the stream. The stream is left open.
+     *
+     * @param set   set.
+     * @param out   stream.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    public static void write(OPMLGuideSet set, OutputStream out)
+        throws IOException
+    {
+        new SnapshotWriter().writeSet(set, out);
+    }
+
+    /**
+     * Writes the set. The guides are encoded first to collect the strings for the table
+     * which precedes them.
+     *
+     * @param set   set.
+     * @param out   stream.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    private void writeSet(OPMLGuideSet set, OutputStream out)
+        throws IOException
+    {
+        OPMLGuide[] guides = set.getGuides();
+        byte[][] blocks = new byte[guides.length][];
+        for (int i = 0; i < guides.length; i++) blocks[i] = encodeGuide(guides[i]);
+
+        int title = index(set.getTitle());
+
+        ByteArrayOutputStream table = new ByteArrayOutputStream();
+        DataOutputStream tableOut = new DataOutputStream(table);
+        tableOut.writeInt(strings.size());
+        for (String string : strings)
+        {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            tableOut.writeInt(bytes.length);
+            tableOut.write(bytes);
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        table.writeTo(data);
+        data.writeInt(title);
+        data.writeLong(set.getDateModified() == null ? NO_DATE : set.getDateModified().getTime());
+        data.writeInt(guides.length);
+
+        long position = data.size() + 4L * guides.length;
+        for (byte[] block : blocks)
+        {
+            if (position > Integer.MAX_VALUE) throw new IOException("Snapshot is too large.");
+            data.writeInt((int)position);
+            position += block.length;
+        }
+
+        for (byte[] block : blocks) data.write(block);
+        data.flush();
+    }
+
+    /**
+     * Encodes the guide with its reading lists and feeds.
+     *
+     * @param guide guide.
+     *
+     * @return block of the guide.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    private byte[] encodeGuide(OPMLGuide guide)
+        throws IOException
+    {
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(block);
+
+        out.writeInt(index(guide.getTitle()));
+        out.writeInt(index(guide.getIcon()));
+        out.writeInt(index(guide.getPublishingTitle()));
+        out.writeInt(index(guide.getPublishingTags()));
+        out.writeInt(guide.getPublishingRating());
+
+        int flags = 0;
+        if (guide.isPublishingEnabled()) flags |= GUIDE_PUBLISHING_ENABLED;
+        if (guide.isPublishingPublic()) flags |= GUIDE_PUBLISHING_PUBLIC;
+        if (guide.isAutoFeedsDiscovery()) flags |= GUIDE_AUTO_FEEDS_DISCOVERY;
+        if (guide.isNotificationsAllowed()) flags |= GUIDE_NOTIFICATIONS;
+        if (guide.isMobile()) flags |= GUIDE_MOBILE;
+        out.writeByte(flags);
+
+        OPMLReadingList[] lists = guide.getReadingLists();
+        out.writeInt(lists.length);
+        for (OPMLReadingList list : lists)
+        {
+            out.writeInt(index(list.getTitle()));
+            out.writeInt(index(list.getURL()));
+
+            List feeds = list.getFeeds();
+            out.writeInt(feeds.size());
+            for (Object feed : feeds) writeFeed(out, (DefaultOPMLFeed)feed);
+        }
+
+        List<DefaultOPMLFeed> feeds = guide.getFeeds();
+        out.writeInt(feeds.size());
+        for (DefaultOPMLFeed feed : feeds) writeFeed(out, feed);
+
+        return block.toByteArray();
+    }
+
+    /**
+     * Writes the feed.
+     *
+     * @param out   stream.
+     * @param feed  feed.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    private void writeFeed(DataOutputStream out, DefaultOPMLFeed feed)
+        throws IOException
+    {
+        int flags = feed.isViewModeEnabled() ? FEED_VIEW_MODE_ENABLED : 0;
+        if (feed instanceof DirectOPMLFeed)
+        {
+            out.writeByte(KIND_DIRECT);
+            if (((DirectOPMLFeed)feed).isDisabled()) flags |= FEED_DISABLED;
+        } else if (feed instanceof QueryOPMLFeed)
+        {
+            out.writeByte(KIND_QUERY);
+            if (((QueryOPMLFeed)feed).isDedupEnabled()) flags |= FEED_DEDUP_ENABLED;
+        } else if (feed instanceof SearchOPMLFeed)
+        {
+            out.writeByte(KIND_SEARCH);
+            if (((SearchOPMLFeed)feed).isDedupEnabled()) flags |= FEED_DEDUP_ENABLED;
+        } else
+        {
+            throw new IOException("Unsupported feed: " + feed.getClass().getName());
+        }
+
+        out.writeByte(flags);
+        out.writeInt(index(feed.getTitle()));
+        out.writeInt(feed.getLimit());
+        out.writeInt(feed.getRating());
+        out.writeInt(index(feed.getReadArticlesKeys()));
+        out.writeInt(index(feed.getPinnedArticlesKeys()));
+        out.writeInt(feed.getViewType());
+        out.writeInt(feed.getViewMode());
+        out.writeInt(feed.getHandlingType());
+
+        Boolean ascending = feed.getAscendingSorting();
+        out.writeByte(ascending == null ? SORTING_DEFAULT : ascending ? SORTING_ASCENDING : SORTING_DESCENDING);
+
+        if (feed instanceof DirectOPMLFeed)
+        {
+            DirectOPMLFeed direct = (DirectOPMLFeed)feed;
+            out.writeInt(index(direct.getXmlURL()));
+            out.writeInt(index(direct.getHtmlURL()));
+            out.writeInt(index(direct.getCustomTitle()));
+            out.writeInt(index(direct.getCustomCreator()));
+            out.writeInt(index(direct.getCustomDescription()));
+            out.writeInt(index(direct.getTags()));
+            out.writeInt(index(direct.getTagsDescription()));
+            out.writeInt(index(direct.getTagsExtended()));
+            writeUpdatePeriod(out, direct);
+        } else if (feed instanceof QueryOPMLFeed)
+        {
+            QueryOPMLFeed query = (QueryOPMLFeed)feed;
+            out.writeInt(query.getQueryType());
+            out.writeInt(index(query.getQueryParam()));
+            out.writeInt(index(query.getXmlURL()));
+            out.writeInt(query.getDedupFrom());
+            out.writeInt(query.getDedupTo());
+            writeUpdatePeriod(out, query);
+        } else
+        {
+            SearchOPMLFeed search = (SearchOPMLFeed)feed;
+            out.writeInt(index(search.getQuery()));
+            out.writeInt(search.getDedupFrom());
+            out.writeInt(search.getDedupTo());
+        }
+    }
+
+    /**
+     * Writes the update period or <code>0</code> if it's not set.
+     *
+     * @param out   stream.
+     * @param feed  feed.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    private static void writeUpdatePeriod(DataOutputStream out, DataOPMLFeed feed)
+        throws IOException
+    {
+        Long period = feed.getUpdatePeriod();
+        out.writeLong(period == null ? 0 : period);
+    }
+
+    /**
+     * Returns the index of the string in the table. The string is added if it isn't there.
+     *
+     * @param string string.
+     *
+     * @return index or <code>NULL_STRING</code>.
+     */
+    private int index(String string)
+    {
+        if (string == null) return NULL_STRING;
+
+        Integer index = indexes.get(string);
+        if (index == null)
+        {
+            index = strings.size();
+            strings.add(string);
+            indexes.put(string, index);
+        }
+
+        return index;
+    }
+}
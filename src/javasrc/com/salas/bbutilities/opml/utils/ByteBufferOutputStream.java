@@ -0,0 +1,100 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.utils;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream writing into the byte buffer, which allows to reuse pooled buffers for output.
+ * The data is written from the position of the buffer. When the buffer is full, it's
+ * replaced with the bigger one of the same kind (heap or direct) holding the same data.
+ */
+public final class ByteBufferOutputStream extends OutputStream
+{
+    private ByteBuffer buffer;
+
+    /**
+     * Creates stream.
+     *
+     * @param aBuffer buffer to write to.
+     */
+    public ByteBufferOutputStream(ByteBuffer aBuffer)
+    {
+        buffer = aBuffer;
+    }
+
+    /**
+     * Returns the buffer with the data. It's the buffer given on construction unless
+     * it had to grow. The position of the buffer is right after the data.
+     *
+     * @return buffer.
+     */
+    public ByteBuffer getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Writes the byte.
+     *
+     * @param b byte.
+     */
+    public void write(int b)
+    {
+        ensureRemaining(1);
+        buffer.put((byte)b);
+    }
+
+    /**
+     * Writes bytes from the array.
+     *
+     * @param b     array.
+     * @param off   offset in the array.
+     * @param len   number of bytes.
+     */
+    public void write(byte[] b, int off, int len)
+    {
+        ensureRemaining(len);
+        buffer.put(b, off, len);
+    }
+
+    /**
+     * Makes sure that the buffer has enough space left growing it if necessary.
+     *
+     * @param len number of bytes to be written.
+     */
+    private void ensureRemaining(int len)
+    {
+        if (buffer.remaining() >= len) return;
+
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + len);
+        ByteBuffer bigger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+    }
+}
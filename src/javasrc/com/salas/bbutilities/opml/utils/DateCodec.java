@@ -0,0 +1,269 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.utils;
+
+import com.salas.bbutilities.opml.objects.FormatConstants;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.SignStyle;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalQueries;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Formatter and parser of the dates in OPML resources. The dates are written in
+ * {@link FormatConstants#DATE_FORMAT} and read from this format or any common RFC-822
+ * variation: with or without the day of week and seconds, with two-digit years and
+ * with zone given as a name or as a numeric offset. All formatters are immutable,
+ * so the methods can be called from any number of threads at once.
+ */
+public final class DateCodec
+{
+    /** Writes dates in the OPML format. */
+    private static final DateTimeFormatter FORMATTER =
+        DateTimeFormatter.ofPattern(FormatConstants.DATE_FORMAT, Locale.US);
+
+    /** Reads date and time without day of week and zone. */
+    private static final DateTimeFormatter DATE_TIME_PARSER = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .parseLenient()
+        .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+        .appendLiteral(' ')
+        .appendText(ChronoField.MONTH_OF_YEAR, TextStyle.SHORT)
+        .appendLiteral(' ')
+        .appendValueReduced(ChronoField.YEAR, 2, 4, 1950)
+        .appendLiteral(' ')
+        .appendValue(ChronoField.HOUR_OF_DAY, 1, 2, SignStyle.NOT_NEGATIVE)
+        .appendLiteral(':')
+        .appendValue(ChronoField.MINUTE_OF_HOUR, 2)
+        .optionalStart()
+        .appendLiteral(':')
+        .appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+        .optionalEnd()
+        .toFormatter(Locale.US);
+
+    /** Writes the zone name the way the formatter does. */
+    private static final DateTimeFormatter ZONE_NAME = DateTimeFormatter.ofPattern("z", Locale.US);
+
+    /** Reads zone names and identifiers. */
+    private static final DateTimeFormatter ZONE_PARSER = new DateTimeFormatterBuilder()
+        .parseCaseInsensitive()
+        .appendZoneText(TextStyle.SHORT)
+        .toFormatter(Locale.US);
+
+    /**
+     * Zones of RFC-822. They are fixed offsets, unlike the regions the zone parser
+     * resolves them to, which would lose the daylight saving part ("EDT" in winter).
+     */
+    private static final Map<String, ZoneOffset> RFC822_ZONES = new HashMap<String, ZoneOffset>();
+
+    static
+    {
+        RFC822_ZONES.put("UT", ZoneOffset.UTC);
+        RFC822_ZONES.put("UTC", ZoneOffset.UTC);
+        RFC822_ZONES.put("GMT", ZoneOffset.UTC);
+        RFC822_ZONES.put("Z", ZoneOffset.UTC);
+        RFC822_ZONES.put("EST", ZoneOffset.ofHours(-5));
+        RFC822_ZONES.put("EDT", ZoneOffset.ofHours(-4));
+        RFC822_ZONES.put("CST", ZoneOffset.ofHours(-6));
+        RFC822_ZONES.put("CDT", ZoneOffset.ofHours(-5));
+        RFC822_ZONES.put("MST", ZoneOffset.ofHours(-7));
+        RFC822_ZONES.put("MDT", ZoneOffset.ofHours(-6));
+        RFC822_ZONES.put("PST", ZoneOffset.ofHours(-8));
+        RFC822_ZONES.put("PDT", ZoneOffset.ofHours(-7));
+    }
+
+    /** Hidden utility class constructor. */
+    private DateCodec()
+    {
+    }
+
+    /**
+     * Formats the date in the OPML format using the default time zone.
+     *
+     * @param date date.
+     *
+     * @return text.
+     */
+    public static String format(Date date)
+    {
+        return FORMATTER.format(ZonedDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()));
+    }
+
+    /**
+     * Parses the date.
+     *
+     * @param text text of date.
+     *
+     * @return date.
+     *
+     * @throws ParseException if the text isn't a date in any of supported formats.
+     */
+    public static Date parse(String text)
+        throws ParseException
+    {
+        String string = text.trim();
+        int start = skipDayOfWeek(string);
+
+        ParsePosition position = new ParsePosition(start);
+        LocalDateTime dateTime;
+        try
+        {
+            TemporalAccessor parsed = DATE_TIME_PARSER.parse(string, position);
+            dateTime = LocalDateTime.from(parsed);
+        } catch (RuntimeException e)
+        {
+            throw parseException(text, e, position.getErrorIndex() == -1 ? start : position.getErrorIndex());
+        }
+
+        int zoneStart = position.getIndex();
+        String zoneText = string.substring(zoneStart).trim();
+
+        ZonedDateTime zoned = atDefaultZone(dateTime, zoneText);
+        if (zoned == null)
+        {
+            ZoneId zone = parseZone(zoneText);
+            if (zone == null) throw new ParseException("Unknown time zone: " + text, zoneStart);
+            zoned = dateTime.atZone(zone);
+        }
+
+        return Date.from(zoned.toInstant());
+    }
+
+    /**
+     * Places the date and time in the default zone if the zone name is the one the
+     * formatter writes for the default zone at this time. Short names are ambiguous
+     * ("CST" is Central Standard Time in the US and China Standard Time in China), so
+     * the dates written by {@link #format(Date)} are read back in the zone they were
+     * written in.
+     *
+     * @param dateTime  date and time.
+     * @param zone      text of zone.
+     *
+     * @return date and time in the default zone or <code>NULL</code> if the name is different.
+     */
+    private static ZonedDateTime atDefaultZone(LocalDateTime dateTime, String zone)
+    {
+        ZonedDateTime zoned = dateTime.atZone(ZoneId.systemDefault());
+
+        // In the hour repeated when daylight saving ends the name tells which one it is
+        ZonedDateTime earlier = zoned.withEarlierOffsetAtOverlap();
+        if (ZONE_NAME.format(earlier).equalsIgnoreCase(zone)) return earlier;
+
+        ZonedDateTime later = zoned.withLaterOffsetAtOverlap();
+        return ZONE_NAME.format(later).equalsIgnoreCase(zone) ? later : null;
+    }
+
+    /**
+     * Returns the index of the text after the optional day of week ("Sun, ").
+     *
+     * @param string text.
+     *
+     * @return index.
+     */
+    private static int skipDayOfWeek(String string)
+    {
+        int index = 0;
+
+        if (string.length() > 0 && Character.isLetter(string.charAt(0)))
+        {
+            int comma = string.indexOf(',');
+            if (comma != -1)
+            {
+                index = comma + 1;
+                while (index < string.length() && string.charAt(index) == ' ') index++;
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Parses the zone given as RFC-822 name, numeric offset or any known zone name.
+     * RFC-822 names are taken as US zones.
+     *
+     * @param zone text of zone.
+     *
+     * @return zone or <code>NULL</code> if not recognized.
+     */
+    private static ZoneId parseZone(String zone)
+    {
+        ZoneId id = RFC822_ZONES.get(zone.toUpperCase(Locale.US));
+
+        if (id == null && zone.length() == 5 && (zone.charAt(0) == '+' || zone.charAt(0) == '-'))
+        {
+            try
+            {
+                int hours = Integer.parseInt(zone.substring(1, 3));
+                int minutes = Integer.parseInt(zone.substring(3));
+                int sign = zone.charAt(0) == '-' ? -1 : 1;
+                id = ZoneOffset.ofHoursMinutes(sign * hours, sign * minutes);
+            } catch (RuntimeException e)
+            {
+                id = null;
+            }
+        } else if (id == null && zone.length() > 0)
+        {
+            try
+            {
+                id = ZONE_PARSER.parse(zone).query(TemporalQueries.zone());
+            } catch (DateTimeParseException e)
+            {
+                id = null;
+            }
+        }
+
+        return id;
+    }
+
+    /**
+     * Creates parsing exception.
+     *
+     * @param text      text.
+     * @param cause     cause.
+     * @param offset    offset of the error.
+     *
+     * @return exception.
+     */
+    private static ParseException parseException(String text, Exception cause, int offset)
+    {
+        ParseException e = new ParseException("Unparseable date: " + text, offset);
+        e.initCause(cause);
+        return e;
+    }
+}
@@ -27,12 +27,14 @@ package com.salas.bbutilities.opml.utils;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 
+import javax.xml.stream.XMLResolver;
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
 
 /**
  * Resolver which resolves nothing all the time.
  */
-public class EmptyEntityResolver implements EntityResolver
+public class EmptyEntityResolver implements EntityResolver, XMLResolver
 {
     /** Instance of resolver. */
     public static final EmptyEntityResolver INSTANCE = new EmptyEntityResolver();
@@ -71,4 +73,20 @@ public class EmptyEntityResolver implements EntityResolver
     {
         return new InputSource(new StringReader("".intern()));
     }
+
+    /**
+     * Resolves an external entity for the pull-parser. The same as with SAX,
+     * nothing is resolved and the empty stream is returned instead.
+     *
+     * @param publicID  public identifier of the external entity.
+     * @param systemID  system identifier of the external entity.
+     * @param baseURI   absolute base URI.
+     * @param namespace namespace of the entity to resolve.
+     *
+     * @return empty stream.
+     */
+    public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace)
+    {
+        return new ByteArrayInputStream(new byte[0]);
+    }
 }
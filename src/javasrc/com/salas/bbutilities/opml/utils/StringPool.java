@@ -0,0 +1,70 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of strings. Big resources repeat the same values (tags, creators, home pages)
+ * over and over again, and each parsed value is a separate copy. Passing the values
+ * through the pool leaves a single copy of each. Unlike {@link String#intern()}, the
+ * pool goes away along with the import it was created for. It isn't thread-safe.
+ */
+public final class StringPool
+{
+    private final Map<String, String> strings = new HashMap<String, String>();
+
+    /**
+     * Returns the pooled copy of the string. The string becomes pooled if there's no copy yet.
+     *
+     * @param string string.
+     *
+     * @return pooled copy or <code>NULL</code> if the string is <code>NULL</code>.
+     */
+    public String get(String string)
+    {
+        if (string == null) return null;
+
+        String pooled = strings.get(string);
+        if (pooled == null)
+        {
+            strings.put(string, string);
+            pooled = string;
+        }
+
+        return pooled;
+    }
+
+    /**
+     * Returns the number of pooled strings.
+     *
+     * @return number of strings.
+     */
+    public int size()
+    {
+        return strings.size();
+    }
+}
@@ -30,8 +30,13 @@ import org.jdom.Attribute;
 import org.jdom.output.XMLOutputter;
 import org.jdom.output.Format;
 
+import java.io.BufferedOutputStream;
 import java.io.StringWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.List;
@@ -83,6 +88,62 @@ public final class Transformation
         return result;
     }
 
+    /**
+     * Saves XML document to the stream in UTF-8. The stream is flushed, but not closed.
+     *
+     * @param aDocument document.
+     * @param out       stream.
+     *
+     * @throws IOException if writing fails.
+     */
+    public static void documentToStream(Document aDocument, OutputStream out)
+        throws IOException
+    {
+        XMLOutputter xo = new XMLOutputter(Format.getRawFormat());
+        xo.output(aDocument, out);
+        out.flush();
+    }
+
+    /**
+     * Saves XML document to the channel in UTF-8. The channel isn't closed.
+     *
+     * @param aDocument document.
+     * @param channel   channel.
+     *
+     * @throws IOException if writing fails.
+     */
+    public static void documentToChannel(Document aDocument, WritableByteChannel channel)
+        throws IOException
+    {
+        documentToStream(aDocument, new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    /**
+     * Saves XML document to the buffer in UTF-8. The data is written from the position of
+     * the buffer. If the buffer is too small, the bigger one is allocated.
+     *
+     * @param aDocument document.
+     * @param buffer    buffer, for example, taken from the pool.
+     *
+     * @return flipped buffer with the data. It's either the buffer given or the bigger one.
+     */
+    public static ByteBuffer documentToBuffer(Document aDocument, ByteBuffer buffer)
+    {
+        ByteBufferOutputStream out = new ByteBufferOutputStream(buffer);
+        try
+        {
+            documentToStream(aDocument, out);
+        } catch (IOException e)
+        {
+            // Writing to the buffer doesn't fail
+            throw new IllegalStateException(e);
+        }
+
+        ByteBuffer result = out.getBuffer();
+        result.flip();
+        return result;
+    }
+
     /**
      * Converts names of all attributes to lower case.
      *
@@ -92,15 +153,16 @@ public final class Transformation
      */
     public static void lowercaseAttributes(Element element)
     {
-        List attributesList = element.getAttributes();
-        Attribute[] attributes = (Attribute[])attributesList.toArray(
-            new Attribute[attributesList.size()]);
-
-        for (int i = 0; i < attributes.length; i++)
+        List attributes = element.getAttributes();
+        for (int i = 0; i < attributes.size(); i++)
         {
-            Attribute attribute = attributes[i];
+            Attribute attribute = (Attribute)attributes.get(i);
             String name = attribute.getName();
-            if (name != null) attribute.setName(name.toLowerCase());
+            if (name != null)
+            {
+                String lowercase = name.toLowerCase();
+                if (!lowercase.equals(name)) attribute.setName(lowercase);
+            }
         }
     }
 }
@@ -59,4 +59,56 @@ public class TestNetUtils extends TestCase
         assertEquals("There's HTTP with FEED.",
             "http://a", NetUtils.fixFeedURL("feed:feed://http://a"));
     }
+
+    /**
+     * Tests corner cases of feed URL's.
+     */
+    public void testFixFeedURLCornerCases()
+    {
+        assertEquals("http://", NetUtils.fixFeedURL("feed:"));
+        assertEquals("http://", NetUtils.fixFeedURL("feed:feed://"));
+        assertEquals("http://a", NetUtils.fixFeedURL(" feed:/// a "));
+        assertEquals("http:///a", NetUtils.fixFeedURL("feed:// /a"));
+        assertEquals("http://a", NetUtils.fixFeedURL("feed:// feed:a"));
+        assertEquals("http://https://a", NetUtils.fixFeedURL("feed:https://a"));
+        assertEquals("FEED://a", NetUtils.fixFeedURL("FEED://a"));
+        assertEquals("a/feed:b", NetUtils.fixFeedURL("a/feed:b"));
+    }
+
+    /**
+     * Tests fixing of several URL's at once.
+     */
+    public void testFixFeedURLs()
+    {
+        String[] urls = { null, " ", "feed://a", " http://b " };
+        assertSame(urls, NetUtils.fixFeedURLs(urls));
+        assertNull(urls[0]);
+        assertNull(urls[1]);
+        assertEquals("http://a", urls[2]);
+        assertEquals("http://b", urls[3]);
+    }
+
+    /**
+     * Tests canonical forms of URL's.
+     */
+    public void testGetCanonicalURL()
+    {
+        assertNull(NetUtils.getCanonicalURL(null));
+        assertNull(NetUtils.getCanonicalURL(" "));
+        assertEquals("a/b/", NetUtils.getCanonicalURL(" a/b/ "));
+
+        String canonical = "http://a.com/rss";
+        assertEquals(canonical, NetUtils.getCanonicalURL("http://a.com/rss"));
+        assertEquals(canonical, NetUtils.getCanonicalURL("https://a.com/rss"));
+        assertEquals(canonical, NetUtils.getCanonicalURL("HTTP://A.Com/rss/"));
+        assertEquals(canonical, NetUtils.getCanonicalURL("feed://a.com/rss//"));
+        assertEquals(canonical, NetUtils.getCanonicalURL("http://a.com:80/rss#top"));
+        assertEquals(canonical, NetUtils.getCanonicalURL("https://a.com:443/rss"));
+
+        assertEquals("http://a.com", NetUtils.getCanonicalURL("http://a.com/"));
+        assertEquals("http://a.com?x=1", NetUtils.getCanonicalURL("http://A.com/?x=1"));
+        assertEquals("http://a.com/RSS?X=/", NetUtils.getCanonicalURL("http://a.com/RSS/?X=/#a"));
+        assertEquals("http://a.com:8080/rss", NetUtils.getCanonicalURL("http://a.com:8080/rss"));
+        assertEquals("ftp://a.com:80/rss", NetUtils.getCanonicalURL("FTP://a.com:80/rss/"));
+    }
 }
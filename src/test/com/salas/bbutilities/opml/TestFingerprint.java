@@ -0,0 +1,178 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * This suite contains tests for <code>Fingerprint</code> unit.
+ */
+public class TestFingerprint extends TestCase
+{
+    private static final String OPML =
+        "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\">" +
+        "<head><title>Feeds</title><dateModified>Mon, 01 Jan 2007 10:00:00 GMT</dateModified></head>" +
+        "<body>" +
+        "<outline text=\"A\" bb:icon=\"i\">" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" bb:rating=\"1\" bb:readArticles=\"1a\"/>" +
+            "<outline type=\"search\" text=\"2\" bb:query=\"q\"/>" +
+        "</outline>" +
+        "</body></opml>";
+
+    private static final String SAME_OPML =
+        "<?xml version=\"1.0\"?>\n<!-- Generated by someone else -->\n" +
+        "<opml xmlns:bb=\"http://blogbridge.com/ns/2006/opml\" version=\"1.1\">\n" +
+        "  <head><title>Feeds</title><dateModified>Tue, 02 Jan 2007 10:00:00 GMT</dateModified></head>\n" +
+        "  <body>\n" +
+        "    <outline bb:icon=\"i\" text=\"A\">\n" +
+        "      <outline bb:readArticles=\"1a\" bb:rating=\"1\" xmlUrl=\"http://a.com/rss\" text=\"1\" type=\"rss\"/>\n" +
+        "      <outline bb:query=\"q\" text=\"2\" type=\"search\"/>\n" +
+        "    </outline>\n" +
+        "  </body>\n" +
+        "</opml>";
+
+    /**
+     * Raw fingerprints differ for any change of bytes.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    public void testBytes()
+        throws IOException
+    {
+        String fingerprint = Fingerprint.ofBytes(new ByteArrayInputStream(OPML.getBytes()));
+
+        assertEquals(64, fingerprint.length());
+        assertEquals(fingerprint, Fingerprint.ofBytes(new ByteArrayInputStream(OPML.getBytes())));
+        assertFalse(fingerprint.equals(Fingerprint.ofBytes(new ByteArrayInputStream(SAME_OPML.getBytes()))));
+    }
+
+    /**
+     * Fingerprints of the contents don't depend on the way the resource is written.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testContents()
+        throws ImporterException
+    {
+        String fingerprint = contents(OPML);
+
+        assertEquals(fingerprint, contents(SAME_OPML));
+        assertFalse(fingerprint.equals(contents(OPML.replace("bb:rating=\"1\"", "bb:rating=\"2\""))));
+        assertFalse(fingerprint.equals(contents(OPML.replace("bb:readArticles=\"1a\"", ""))));
+        assertFalse(fingerprint.equals(contents(OPML.replace("text=\"A\"", "text=\"B\""))));
+    }
+
+    /**
+     * Fingerprints of imported sets are the same as calculated while importing.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testSet()
+        throws ImporterException
+    {
+        assertEquals(contents(OPML), Fingerprint.of(new Importer().processFromString(SAME_OPML, false)));
+    }
+
+    /**
+     * Feeds going before and after reading lists give the same fingerprints for imported sets.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testFeedsAndReadingLists()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head><body>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/>" +
+                "<outline type=\"list\" text=\"List\" xmlUrl=\"http://list\">" +
+                    "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\"/>" +
+                "</outline>" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://c.com/rss\"/>" +
+            "</outline>" +
+            "</body></opml>";
+
+        String fingerprint = contents(opml);
+        assertEquals(fingerprint, Fingerprint.of(new Importer().processFromString(opml, false)));
+        assertFalse(fingerprint.equals(contents(opml.replace("text=\"List\"", "text=\"Other\""))));
+    }
+
+    /**
+     * Top-level feeds going after the guides give the same fingerprints as when they go
+     * first, like they do in imported sets.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testTopLevelFeedsAfterGuides()
+        throws ImporterException
+    {
+        String feedsFirst =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head><body>" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/>" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\"/>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://c.com/rss\"/>" +
+            "</outline>" +
+            "</body></opml>";
+        String feedsAfter =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head><body>" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://c.com/rss\"/>" +
+            "</outline>" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\"/>" +
+            "</body></opml>";
+
+        String fingerprint = contents(feedsFirst);
+        assertEquals(fingerprint, contents(feedsAfter));
+        assertEquals(fingerprint, contents(feedsAfter.replace(
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/><outline text=\"A\">",
+            "<outline text=\"A\">").replace(
+            "<outline type=\"rss\" text=\"2\"",
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/><outline type=\"rss\" text=\"2\"")));
+        assertEquals(fingerprint, Fingerprint.of(new Importer().processFromString(feedsAfter, false)));
+        assertFalse(fingerprint.equals(contents(feedsAfter.replace("text=\"2\"", "text=\"4\""))));
+    }
+
+    /**
+     * Calculates the fingerprint of the contents while importing.
+     *
+     * @param opml resource.
+     *
+     * @return fingerprint.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    private static String contents(String opml)
+        throws ImporterException
+    {
+        Fingerprint fingerprint = new Fingerprint();
+        new Importer().process(new ByteArrayInputStream(opml.getBytes()), fingerprint);
+        return fingerprint.getValue();
+    }
+}
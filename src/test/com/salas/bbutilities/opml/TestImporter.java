@@ -28,17 +28,32 @@ import com.salas.bbutilities.opml.objects.*;
 import com.salas.bbutilities.opml.utils.Transformation;
 import junit.framework.TestCase;
 import org.jdom.Element;
+import org.jdom.Namespace;
+import org.xml.sax.InputSource;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This suite contains tests for <code>Importer</code> unit.
@@ -775,6 +790,39 @@ public class TestImporter extends TestCase
         assertEquals(new Long(1l), channel.getUpdatePeriod());
     }
 
+    /**
+     * Attributes are taken only from the namespaces they belong to.
+     */
+    public void testFeedAttributesNamespaces()
+    {
+        Namespace other = Namespace.getNamespace("o", "http://example.com/other");
+
+        // <outline title="t" o:title="x" xmlurl="1.xml" rating="5" bb:limit="10" bb:customtitle="c"
+        //  o:customcreator="x"/>
+        Element outline = new Element("outline");
+        outline.setAttribute("title", "t");
+        outline.setAttribute("title", "x", other);
+        outline.setAttribute("xmlurl", "1.xml");
+        outline.setAttribute("rating", "5");
+        outline.setAttribute("limit", "10", FormatConstants.BB_NAMESPACE);
+        outline.setAttribute("customtitle", "c", FormatConstants.BB_NAMESPACE);
+        outline.setAttribute("customcreator", "x", other);
+
+        DirectOPMLFeed feed = Importer.createFeed(outline, FormatConstants.BB_NAMESPACE);
+        assertEquals("t", feed.getTitle());
+        assertEquals("1.xml", feed.getXmlURL());
+        assertEquals(-1, feed.getRating());
+        assertEquals(10, feed.getLimit());
+        assertEquals("c", feed.getCustomTitle());
+        assertNull(feed.getCustomCreator());
+
+        // Without BB namespace all values come from attributes without namespace
+        feed = Importer.createFeed(outline, null);
+        assertEquals(5, feed.getRating());
+        assertEquals(-1, feed.getLimit());
+        assertNull(feed.getCustomTitle());
+    }
+
     /**
      * Verifies lowercasing of the attributes names.
      */
@@ -1129,6 +1177,39 @@ public class TestImporter extends TestCase
         assertEquals(Importer.OUTLINE_TYPE_READING_LIST, type);
     }
 
+    /**
+     * Classification of links gives the same results as checking them through URL's.
+     */
+    public void testOPMLLinkClassification()
+    {
+        String[] urls = {
+            null, "", ".opml", "a.opml", "http://a.com/b.opml", "http://a.com/b.OPML", "http://a.com/b.opml?x=1",
+            "http://a.com/b.opml#top", "http://a.com/b?f=c.opml", "unknown://a.com/b.opml", " http://a.com/b.opml ",
+            "url:http://a.com/b.opml", "file:/tmp/b.opml", "http://a.com/b.xml", "jar:file:/a.jar!/b.opml",
+            "jar:b.opml", "http://a.com:port/b.opml", "b.opml.xml", "http://a.com/b.opml/"
+        };
+
+        for (String url : urls)
+        {
+            boolean expected = false;
+            try
+            {
+                URL u = new URL(url);
+                expected = u.getPath().endsWith(".opml") || url.endsWith(".opml");
+            } catch (MalformedURLException e)
+            {
+                // Invalid link
+            }
+
+            assertEquals(url, expected, OutlineClassifier.isOPMLLink(url));
+            if (url != null)
+            {
+                assertEquals(url, url.trim().toLowerCase().endsWith(".opml"),
+                    OutlineClassifier.endsWithIgnoreCaseTrimmed(url, ".opml"));
+            }
+        }
+    }
+
     /**
      * Tests collecting objects for guide.
      */
@@ -1161,6 +1242,37 @@ public class TestImporter extends TestCase
         assertEquals(2, lists[0].getFeeds().size());
     }
 
+    /**
+     * Attribute names are matched in any case and the outlines aren't changed.
+     */
+    public void testMixedCaseAttributes()
+    {
+        OPMLGuide guide = new OPMLGuide("", "", false, null, null, false, 0, false, false, false);
+        Element guideOutline = new Element("outline");
+
+        Element feedOutline = new Element("outline");
+        guideOutline.addContent(feedOutline);
+        feedOutline.setAttribute("Type", "rss");
+        feedOutline.setAttribute("TEXT", "1");
+        feedOutline.setAttribute("xmlUrl", "file://test");
+        feedOutline.setAttribute("htmlURL", "file://home");
+        feedOutline.setAttribute("readArticles", "a");
+
+        importer.collectObjects(guideOutline, guide);
+
+        List feeds = guide.getFeeds();
+        assertEquals(1, feeds.size());
+        DirectOPMLFeed feed = (DirectOPMLFeed)feeds.get(0);
+        assertEquals("1", feed.getTitle());
+        assertEquals("file://test", feed.getXmlURL());
+        assertEquals("file://home", feed.getHtmlURL());
+        assertEquals("a", feed.getReadArticlesKeys());
+
+        assertNotNull(feedOutline.getAttribute("Type"));
+        assertNotNull(feedOutline.getAttribute("xmlUrl"));
+        assertNull(feedOutline.getAttribute("xmlurl"));
+    }
+
     /**
      * Tests sample OPML parsing.
      */
@@ -1186,6 +1298,136 @@ public class TestImporter extends TestCase
         assertEquals(1, guide.getFeeds().size());
     }
 
+    /**
+     * Duplicate feeds are skipped within a guide and across guides when asked.
+     */
+    public void testSkipDuplicateFeeds()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head>" +
+            "<body>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+                "<outline type=\"rss\" text=\"2\" xmlUrl=\"https://A.com/rss/\" />" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://b.com/rss\" />" +
+            "</outline>" +
+            "<outline text=\"B\">" +
+                "<outline type=\"rss\" text=\"4\" xmlUrl=\"feed://b.com/rss\" />" +
+                "<outline type=\"rss\" text=\"5\" xmlUrl=\"http://c.com/rss\" />" +
+            "</outline>" +
+            "</body></opml>";
+
+        OPMLGuide[] guides = importer.processFromString(opml, false).getGuides();
+        assertEquals(3, guides[0].getFeeds().size());
+        assertEquals(2, guides[1].getFeeds().size());
+
+        importer.setSkipDuplicateFeeds(true);
+        guides = importer.processFromString(opml, false).getGuides();
+        assertEquals(2, guides.length);
+        assertEquals(2, guides[0].getFeeds().size());
+        assertEquals("1", guides[0].getFeeds().get(0).getTitle());
+        assertEquals("3", guides[0].getFeeds().get(1).getTitle());
+        assertEquals(1, guides[1].getFeeds().size());
+        assertEquals("5", guides[1].getFeeds().get(0).getTitle());
+    }
+
+    /**
+     * The root guide isn't created when all top-level feeds are skipped as duplicates.
+     */
+    public void testSkipDuplicateRootFeeds()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head>" +
+            "<body>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+            "</outline>" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://a.com/rss/\" />" +
+            "</body></opml>";
+
+        importer.setSkipDuplicateFeeds(true);
+        for (int i = 0; i < 2; i++)
+        {
+            importer.setStreamingMode(i == 1);
+
+            OPMLGuide[] guides = importer.processFromString(opml, false).getGuides();
+            assertEquals(1, guides.length);
+            assertEquals("A", guides[0].getTitle());
+            assertEquals(1, guides[0].getFeeds().size());
+
+            guides = importer.processTable(new ByteArrayInputStream(opml.getBytes())).toGuides();
+            assertEquals(1, guides.length);
+            assertEquals("A", guides[0].getTitle());
+        }
+    }
+
+    /**
+     * Tests importing into the table of feeds.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testProcessTable()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\"><head><title>Feeds</title></head>" +
+            "<body>" +
+            "<outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" bb:rating=\"1\" bb:readArticles=\"1a,2b\" bb:updatePeriod=\"60000\"/>" +
+                "<outline type=\"search\" text=\"2\" bb:query=\"q\"/>" +
+            "</outline>" +
+            "<outline text=\"B\">" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://b.com/rss\" htmlUrl=\"http://b.com/\" bb:tags=\"x y\" bb:ascendingSorting=\"true\"/>" +
+            "</outline>" +
+            "</body></opml>";
+
+        OPMLGuide[] expected = importer.processFromString(opml, false).getGuides();
+        FeedTable table = importer.processTable(new ByteArrayInputStream(opml.getBytes()));
+
+        assertEquals(3, table.size());
+        assertFalse(table.isDirect(1));
+        assertEquals(60000L, table.getUpdatePeriod(0));
+
+        OPMLGuide[] guides = table.toGuides();
+        assertEquals(expected.length, guides.length);
+        for (int i = 0; i < guides.length; i++)
+        {
+            assertEquals(expected[i].getTitle(), guides[i].getTitle());
+            assertEquals(expected[i].getFeeds(), guides[i].getFeeds());
+        }
+    }
+
+    /**
+     * Tests sharing of repeated values.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testPoolStrings()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head>" +
+            "<body><outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" tags=\"news tech\" />" +
+                "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\" tags=\"news tech\" />" +
+            "</outline></body></opml>";
+
+        OPMLGuide guide = importer.processFromString(opml, false).getGuides()[0];
+        DirectOPMLFeed feed1 = (DirectOPMLFeed)guide.getFeeds().get(0);
+        DirectOPMLFeed feed2 = (DirectOPMLFeed)guide.getFeeds().get(1);
+        assertEquals(feed1.getTags(), feed2.getTags());
+        assertNotSame(feed1.getTags(), feed2.getTags());
+
+        importer.setPoolStrings(true);
+        guide = importer.processFromString(opml, false).getGuides()[0];
+        feed1 = (DirectOPMLFeed)guide.getFeeds().get(0);
+        feed2 = (DirectOPMLFeed)guide.getFeeds().get(1);
+        assertEquals("news tech", feed1.getTags());
+        assertSame(feed1.getTags(), feed2.getTags());
+    }
+
     /**
      * Flattening the list with one top-level guide and various sub-guides.
      */
@@ -1326,8 +1568,7 @@ public class TestImporter extends TestCase
         outline.setAttribute("pubtags", "b,c", FormatConstants.BB_NAMESPACE);
         outline.setAttribute("pubpublic", "true", FormatConstants.BB_NAMESPACE);
 
-        importer.setBbNs(FormatConstants.BB_NAMESPACE);
-        guide = importer.createGuide(outline);
+        guide = importer.createGuide(outline, FormatConstants.BB_NAMESPACE);
         assertTrue(guide.isPublishingEnabled());
         assertTrue(guide.isPublishingPublic());
         assertEquals("a", guide.getPublishingTitle());
@@ -1452,4 +1693,527 @@ public class TestImporter extends TestCase
         OPMLGuide[] guides = importer.processFromString(opml, false).getGuides();
         assertEquals(1, guides.length);
     }
+
+    /**
+     * Streaming mode should give the same results as the document mode.
+     */
+    public void testStreamingMode()
+        throws ImporterException
+    {
+        Importer streaming = new Importer();
+        streaming.setStreamingMode(true);
+
+        String[] files = { "flat.opml", "multilevel-1.opml", "multilevel-2.opml" };
+        for (String file : files)
+        {
+            checkSameSets(importer.process(getUrl(file), false), streaming.process(getUrl(file), false));
+            checkSameSets(importer.process(getUrl(file), true), streaming.process(getUrl(file), true));
+        }
+
+        String opml =
+            "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\">" +
+            "<head><title>Feeds</title><dateModified>Tue, 24 Jan 2006 14:00:00 GMT</dateModified></head>" +
+            "<body>" +
+            "<outline text=\"Subscriptions\" bb:notificationsAllowed=\"true\">" +
+                "<outline type=\"rss\" text=\"Feed 1\" xmlUrl=\"http://xml\" bb:rating=\"1\" bb:readArticles=\"aaa\"/>" +
+                "<outline type=\"list\" text=\"List\" xmlUrl=\"http://list\">" +
+                    "<outline type=\"rss\" text=\"Feed 2\" xmlUrl=\"http://xml2\"/>" +
+                "</outline>" +
+            "</outline>" +
+            "<outline type=\"rss\" text=\"Feed 3\" xmlUrl=\"http://xml3\"/>" +
+            "<outline type=\"search\" text=\"Search\" bb:query=\"q\"/>" +
+            "</body></opml>";
+        checkSameSets(importer.processFromString(opml, false), streaming.processFromString(opml, false));
+    }
+
+    /**
+     * Clever flattening of the single top-level guide works in streaming mode.
+     */
+    public void testStreamingModeCleverFlattening()
+        throws ImporterException
+    {
+        importer.setStreamingMode(true);
+
+        String opml =
+            "<!DOCTYPE opml SYSTEM \"http://localhost/opml.dtd\">" +
+            "<opml version=\"1.1\"><head><title>Feeds</title></head>" +
+            "<body>" +
+            "<outline text=\"Subscriptions\">" +
+                "<outline text=\"Guide 1\">" +
+                    "<outline type=\"rss\" text=\"Feed 1\" xmlUrl=\"http://xml\" htmlUrl=\"http://localhost/\" />" +
+                "</outline>" +
+                "<outline type=\"rss\" text=\"Feed 2\" xmlUrl=\"http://xml2\" htmlUrl=\"http://localhost/\" />" +
+            "</outline>" +
+            "</body></opml>";
+
+        OPMLGuide[] guides = importer.processFromString(opml, false).getGuides();
+        assertEquals(2, guides.length);
+        assertEquals("Subscriptions", guides[0].getTitle());
+        assertEquals(1, guides[0].getFeeds().size());
+        assertEquals("Guide 1", guides[1].getTitle());
+        assertEquals(1, guides[1].getFeeds().size());
+    }
+
+    /**
+     * Invalid resources are detected in streaming mode.
+     */
+    public void testStreamingModeInvalid()
+    {
+        importer.setStreamingMode(true);
+        checkInvalidCases(false);
+        checkInvalidCases(true);
+
+        try
+        {
+            importer.processFromString("<opml version=\"1.1\"><body><outline text=\"a\">", false);
+            fail("Parsing exception should be thrown. Document isn't complete.");
+        } catch (ImporterException e)
+        {
+            assertEquals(ImporterException.TYPE_PARSING, e.getType());
+        }
+    }
+
+    /**
+     * Listener gets all guides, feeds and reading lists in the order of appearance.
+     */
+    public void testProcessWithListener()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Feeds</title></head>" +
+            "<body>" +
+            "<outline type=\"rss\" text=\"Feed 1\" xmlUrl=\"http://xml1\"/>" +
+            "<outline text=\"Guide 1\">" +
+                "<outline type=\"rss\" text=\"Feed 2\" xmlUrl=\"http://xml2\"/>" +
+                "<outline type=\"list\" text=\"List\" xmlUrl=\"http://list\">" +
+                    "<outline type=\"rss\" text=\"Feed 3\" xmlUrl=\"http://xml3\"/>" +
+                "</outline>" +
+            "</outline>" +
+            "<outline text=\"Empty\"/>" +
+            "<outline type=\"rss\" text=\"Feed 4\" xmlUrl=\"http://xml4\"/>" +
+            "</body></opml>";
+
+        String expected =
+            "start Feeds, feed Feed 1, end Feeds, " +
+            "start Guide 1, feed Feed 2, list List, end Guide 1, " +
+            "start Feeds, feed Feed 4, end Feeds, ";
+
+        RecordingListener listener = new RecordingListener();
+        importer.processFromString(opml, listener);
+        assertEquals(expected, listener.events.toString());
+
+        listener = new RecordingListener();
+        importer.setStreamingMode(true);
+        importer.processFromString(opml, listener);
+        assertEquals(expected, listener.events.toString());
+
+        // Empty guides are reported only when allowed
+        listener = new RecordingListener();
+        importer.setAllowEmptyGuides(true);
+        importer.processFromString(opml, listener);
+        assertTrue(listener.events.toString().contains("end Guide 1, start Empty, end Empty, "));
+    }
+
+    /**
+     * Embedded resources downloaded in parallel are placed in the document order.
+     */
+    public void testParallelIncludes()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Includes</title></head>" +
+            "<body>" +
+            "<outline type=\"include\" text=\"A\" url=\"" + getUrl("multilevel-1.opml") + "\"/>" +
+            "<outline type=\"rss\" text=\"Feed 1\" xmlUrl=\"http://xml1\"/>" +
+            "<outline type=\"include\" text=\"B\" url=\"" + getUrl("flat.opml") + "\"/>" +
+            "<outline type=\"include\" text=\"C\" url=\"" + getUrl("missing.opml") + "\"/>" +
+            "<outline text=\"Guide\">" +
+                "<outline type=\"include\" text=\"D\" url=\"" + getUrl("flat.opml") + "\"/>" +
+                "<outline type=\"include\" text=\"E\" url=\"" + getUrl("multilevel-2.opml") + "\"/>" +
+            "</outline>" +
+            "</body></opml>";
+
+        OPMLGuideSet expected = importer.processFromString(opml, false);
+        assertTrue(expected.getGuides().length > 2);
+
+        ExecutorService executor = Importer.createIncludesExecutor();
+        try
+        {
+            Importer parallel = new Importer();
+            parallel.setIncludesExecutor(executor);
+            parallel.setMaxParallelIncludes(2);
+            checkSameSets(expected, parallel.processFromString(opml, false));
+
+            parallel.setIncludesTimeout(10000);
+            checkSameSets(expected, parallel.processFromString(opml, false));
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The limit of parallel downloads holds for the whole import, including the embedded
+     * resources of other levels and guides.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testParallelIncludesLimit()
+        throws Exception
+    {
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final AtomicInteger fetches = new AtomicInteger();
+
+        // The first download waits for the second one to start
+        final CountDownLatch overlap = new CountDownLatch(2);
+
+        Importer parallel = new Importer()
+        {
+            public InputStream createStreamForURL(URL url)
+                throws IOException
+            {
+                int now = current.incrementAndGet();
+                fetches.incrementAndGet();
+                while (max.get() < now && !max.compareAndSet(max.get(), now));
+
+                try
+                {
+                    overlap.countDown();
+                    overlap.await(5, TimeUnit.SECONDS);
+                    Thread.sleep(50);
+                } catch (InterruptedException e)
+                {
+                    throw new InterruptedIOException();
+                } finally
+                {
+                    current.decrementAndGet();
+                }
+
+                String name = url.getPath().substring(1);
+                StringBuilder opml = new StringBuilder("<opml version=\"1.1\"><head><title>" + name +
+                    "</title></head><body>");
+                if (name.startsWith("top"))
+                {
+                    for (int i = 0; i < 4; i++)
+                    {
+                        opml.append("<outline type=\"include\" text=\"").append(i).append("\" url=\"")
+                            .append("http://includes.test/leaf-").append(name).append(i).append(".opml\"/>");
+                    }
+                }
+                opml.append("<outline type=\"rss\" text=\"").append(name).append("\" xmlUrl=\"http://")
+                    .append(name).append("\"/></body></opml>");
+
+                return new ByteArrayInputStream(opml.toString().getBytes("UTF-8"));
+            }
+        };
+
+        StringBuilder opml = new StringBuilder("<opml version=\"1.1\"><head><title>Includes</title></head><body>");
+        for (int i = 0; i < 4; i++)
+        {
+            opml.append("<outline type=\"include\" text=\"T\" url=\"http://includes.test/top-a").append(i)
+                .append(".opml\"/>");
+        }
+        opml.append("<outline text=\"Guide\">");
+        for (int i = 0; i < 4; i++)
+        {
+            opml.append("<outline type=\"include\" text=\"G\" url=\"http://includes.test/top-b").append(i)
+                .append(".opml\"/>");
+        }
+        opml.append("</outline></body></opml>");
+
+        ExecutorService executor = Importer.createIncludesExecutor();
+        try
+        {
+            parallel.setIncludesExecutor(executor);
+            parallel.setMaxParallelIncludes(2);
+            parallel.processFromString(opml.toString(), false);
+        } finally
+        {
+            executor.shutdown();
+        }
+
+        assertEquals(40, fetches.get());
+        assertEquals("Simultaneous downloads", 2, max.get());
+    }
+
+    /**
+     * Builder is reused for the next document after it failed on the broken one.
+     */
+    public void testBuilderReuseAfterError()
+        throws ImporterException
+    {
+        String opml = "<opml version=\"1.1\"><head><title>T</title></head><body>" +
+            "<outline type=\"rss\" text=\"Feed\" xmlUrl=\"http://xml\"/></body></opml>";
+
+        OPMLGuideSet expected = importer.processFromString(opml, false);
+        try
+        {
+            importer.processFromString(opml.substring(0, opml.length() / 2), false);
+            fail("Broken document was parsed.");
+        } catch (ImporterException e)
+        {
+            assertEquals(ImporterException.TYPE_PARSING, e.getType());
+        }
+
+        checkSameSets(expected, importer.processFromString(opml, false));
+    }
+
+    /**
+     * Embedded resources are taken from the cache while it's fresh.
+     */
+    public void testIncludesCache()
+        throws ImporterException
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Includes</title></head>" +
+            "<body>" +
+            "<outline type=\"include\" text=\"A\" url=\"" + getUrl("flat.opml") + "\"/>" +
+            "<outline text=\"Guide\">" +
+                "<outline type=\"include\" text=\"B\" url=\"" + getUrl("flat.opml") + "\"/>" +
+            "</outline>" +
+            "<outline type=\"include\" text=\"C\" url=\"" + getUrl("multilevel-1.opml") + "\"/>" +
+            "</body></opml>";
+
+        OPMLGuideSet expected = importer.processFromString(opml, false);
+
+        final int[] reads = new int[1];
+        Importer cached = new Importer()
+        {
+            public InputStream createStreamForURL(URL url) throws IOException
+            {
+                reads[0]++;
+                return super.createStreamForURL(url);
+            }
+        };
+
+        cached.processFromString(opml, false);
+        int uncachedReads = reads[0];
+
+        // The same resource is fetched once
+        cached.setIncludesCache(new IncludesCache(10, 60000));
+        reads[0] = 0;
+        checkSameSets(expected, cached.processFromString(opml, false));
+        assertEquals(uncachedReads - 1, reads[0]);
+
+        // Fresh entries aren't fetched
+        reads[0] = 0;
+        checkSameSets(expected, cached.processFromString(opml, false));
+        assertEquals(0, reads[0]);
+
+        // Stale entries are fetched again
+        cached.setIncludesCache(new IncludesCache(10, 0));
+        reads[0] = 0;
+        checkSameSets(expected, cached.processFromString(opml, false));
+        checkSameSets(expected, cached.processFromString(opml, false));
+        assertEquals(2 * uncachedReads, reads[0]);
+
+        // Least recently used entries are evicted
+        cached.setIncludesCache(new IncludesCache(1, 60000));
+        checkSameSets(expected, cached.processFromString(opml, false));
+    }
+
+    /**
+     * Subclasses provide their own sources of data for URL's, including readers.
+     */
+    public void testCreateSourceForURL()
+        throws Exception
+    {
+        final String opml = "<opml version=\"1.1\"><head><title>Caf\u00e9</title></head><body>" +
+            "<outline type=\"rss\" text=\"R\u00e9sum\u00e9\" xmlUrl=\"http://xml\"/></body></opml>";
+
+        Importer readers = new Importer()
+        {
+            protected InputSource createSourceForURL(URL url)
+            {
+                return new InputSource(new StringReader(opml));
+            }
+        };
+
+        OPMLGuideSet set = readers.process(new URL("http://sources.test/a.opml"), false);
+        checkSameSets(importer.processFromString(opml, false), set);
+    }
+
+    /**
+     * Byte sources are decoded according to the declared encoding.
+     */
+    public void testDeclaredEncoding()
+        throws Exception
+    {
+        String opml = "<opml version=\"1.1\"><head><title>Caf\u00e9</title></head><body>" +
+            "<outline type=\"rss\" text=\"R\u00e9sum\u00e9\" xmlUrl=\"http://xml\"/></body></opml>";
+        OPMLGuideSet expected = importer.processFromString(opml, false);
+
+        byte[] latin = ("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + opml).getBytes("ISO-8859-1");
+        byte[] utf = ("\ufeff<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + opml).getBytes("UTF-8");
+
+        checkSameSets(expected, importer.process(new ByteArrayInputStream(latin), false));
+        checkSameSets(expected, importer.process(new ByteArrayInputStream(utf), false));
+
+        ByteBuffer buffer = ByteBuffer.wrap(latin);
+        checkSameSets(expected, importer.process(buffer, false));
+        assertEquals("Buffer should be left intact.", 0, buffer.position());
+
+        File file = File.createTempFile("import", ".opml");
+        try
+        {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(utf);
+            out.close();
+
+            checkSameSets(expected, importer.process(file.toPath(), false));
+
+            importer.setStreamingMode(true);
+            checkSameSets(expected, importer.process(file.toPath(), false));
+            checkSameSets(expected, importer.process(new ByteArrayInputStream(latin), false));
+        } finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Local files give the same results as their URLs.
+     */
+    public void testProcessPath()
+        throws Exception
+    {
+        String[] files = { "flat.opml", "multilevel-1.opml", "multilevel-2.opml" };
+        for (String file : files)
+        {
+            Path path = new File(getUrl(file).toURI()).toPath();
+            checkSameSets(importer.process(getUrl(file), false), importer.process(path, false));
+            checkSameSets(importer.process(getUrl(file), true), importer.process(path, true));
+        }
+
+        try
+        {
+            importer.process(new File(System.getProperty("user.dir") + DATA_ROOT + "missing.opml").toPath(), false);
+            fail("Missing file was imported.");
+        } catch (ImporterException e)
+        {
+            assertEquals(ImporterException.TYPE_IO, e.getType());
+        }
+    }
+
+    /**
+     * Single importer can be used from several threads at once.
+     */
+    public void testConcurrentProcessing()
+        throws Exception
+    {
+        final String[] files = { "flat.opml", "multilevel-1.opml", "multilevel-2.opml" };
+        final OPMLGuideSet[] expected = new OPMLGuideSet[files.length];
+        for (int i = 0; i < files.length; i++) expected[i] = new Importer().process(getUrl(files[i]), false);
+
+        final Throwable[] failure = new Throwable[1];
+        Thread[] threads = new Thread[6];
+        for (int i = 0; i < threads.length; i++)
+        {
+            final int file = i % files.length;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < 20; j++)
+                        {
+                            checkSameSets(expected[file], importer.process(getUrl(files[file]), false));
+                        }
+                    } catch (Throwable e)
+                    {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        for (Thread thread : threads) thread.join();
+        if (failure[0] != null) fail(failure[0].toString());
+    }
+
+    /**
+     * Known attribute names are lowercased from the table, returning the same instance.
+     */
+    public void testAttributeNamesLowercase()
+    {
+        String name = AttributeNames.lowercase(FormatConstants.ATTR_FEED_READ_ARTICLES);
+        assertEquals("readarticles", name);
+        assertSame(name, AttributeNames.lowercase(FormatConstants.ATTR_FEED_READ_ARTICLES));
+        assertSame(name, AttributeNames.lowercase("readarticles"));
+        assertSame("keywords", AttributeNames.lowercase("keywords"));
+
+        assertEquals("unknownname", AttributeNames.lowercase("unknownName"));
+    }
+
+    /**
+     * Attributes are found by the lowercase, original or mixed case names.
+     */
+    public void testAttributeNamesFind()
+    {
+        Namespace ns = Namespace.getNamespace("bb", "http://www.blogbridge.com/ns");
+        Element outline = new Element("outline");
+        outline.setAttribute("xmlurl", "a");
+        outline.setAttribute("TITLE", "b");
+        outline.setAttribute("readArticles", "c", ns);
+
+        assertEquals("a", AttributeNames.find(outline, FormatConstants.ATTR_FEED_XML_URL, null).getValue());
+        assertEquals("b", AttributeNames.find(outline, FormatConstants.ATTR_FEED_TITLE, null).getValue());
+        assertEquals("c", AttributeNames.find(outline, "readarticles", ns).getValue());
+        assertNull(AttributeNames.find(outline, FormatConstants.ATTR_FEED_READ_ARTICLES, null));
+        assertNull(AttributeNames.find(outline, "unknown", null));
+    }
+
+    /**
+     * Records all events in a string.
+     */
+    private static class RecordingListener implements OPMLImportListener
+    {
+        private final StringBuffer events = new StringBuffer();
+
+        public void onGuideStart(OPMLGuide guide)
+        {
+            events.append("start ").append(guide.getTitle()).append(", ");
+        }
+
+        public void onFeed(DefaultOPMLFeed feed)
+        {
+            events.append("feed ").append(feed.getTitle()).append(", ");
+        }
+
+        public void onReadingList(OPMLReadingList list)
+        {
+            events.append("list ").append(list.getTitle()).append(", ");
+        }
+
+        public void onGuideEnd(OPMLGuide guide)
+        {
+            events.append("end ").append(guide.getTitle()).append(", ");
+        }
+    }
+
+    /**
+     * Checks that two sets have the same guides, feeds and reading lists.
+     *
+     * @param expected  expected set.
+     * @param actual    actual set.
+     */
+    private static void checkSameSets(OPMLGuideSet expected, OPMLGuideSet actual)
+    {
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDateModified(), actual.getDateModified());
+
+        OPMLGuide[] expectedGuides = expected.getGuides();
+        OPMLGuide[] actualGuides = actual.getGuides();
+        assertEquals(expectedGuides.length, actualGuides.length);
+        for (int i = 0; i < expectedGuides.length; i++)
+        {
+            assertEquals(expectedGuides[i].toString(), actualGuides[i].toString());
+            assertEquals(expectedGuides[i].getFeeds().toString(), actualGuides[i].getFeeds().toString());
+            assertEquals(Arrays.asList(expectedGuides[i].getReadingLists()).toString(),
+                Arrays.asList(actualGuides[i].getReadingLists()).toString());
+        }
+    }
 }
@@ -0,0 +1,213 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.diff;
+
+import com.salas.bbutilities.opml.Importer;
+import com.salas.bbutilities.opml.ImporterException;
+import com.salas.bbutilities.opml.objects.DefaultOPMLFeed;
+import com.salas.bbutilities.opml.objects.OPMLGuide;
+import com.salas.bbutilities.opml.objects.OPMLGuideSet;
+import com.salas.bbutilities.opml.objects.OPMLReadingList;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This suite contains tests for <code>GuideSetDiff</code> unit.
+ */
+public class TestGuideSetDiff extends TestCase
+{
+    private static final String OLD =
+        "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\"><head><title>Feeds</title></head>" +
+        "<body>" +
+        "<outline text=\"A\">" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\" bb:rating=\"1\" />" +
+            "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://c.com/rss\" />" +
+            "<outline type=\"search\" text=\"4\" bb:query=\"q\" />" +
+        "</outline>" +
+        "<outline text=\"B\">" +
+            "<outline type=\"rss\" text=\"5\" xmlUrl=\"http://d.com/rss\" />" +
+        "</outline>" +
+        "<outline text=\"C\">" +
+            "<outline type=\"rss\" text=\"6\" xmlUrl=\"http://e.com/rss\" />" +
+        "</outline>" +
+        "</body></opml>";
+
+    private static final String NEW =
+        "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\"><head><title>Feeds</title></head>" +
+        "<body>" +
+        "<outline text=\"A\">" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\" bb:rating=\"2\" />" +
+            "<outline type=\"search\" text=\"4\" bb:query=\"q\" />" +
+            "<outline type=\"rss\" text=\"7\" xmlUrl=\"http://f.com/rss\" />" +
+        "</outline>" +
+        "<outline text=\"B\" bb:mobile=\"true\">" +
+            "<outline type=\"rss\" text=\"5\" xmlUrl=\"http://d.com/rss\" bb:disabled=\"true\" />" +
+        "</outline>" +
+        "<outline text=\"D\">" +
+            "<outline type=\"rss\" text=\"6\" xmlUrl=\"http://e.com/rss\" />" +
+        "</outline>" +
+        "</body></opml>";
+
+    private Importer importer;
+
+    protected void setUp()
+        throws Exception
+    {
+        importer = new Importer();
+    }
+
+    /**
+     * Identical sets have no differences.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testSame()
+        throws ImporterException
+    {
+        assertEquals(0, diff(OLD, OLD).size());
+    }
+
+    /**
+     * All kinds of changes are found.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testChanges()
+        throws ImporterException
+    {
+        List<String> events = diff(OLD, NEW);
+
+        assertEquals(7, events.size());
+        assertEquals("feedChanged A 2", events.get(0));
+        assertEquals("feedAdded A 7", events.get(1));
+        assertEquals("feedRemoved A 3", events.get(2));
+        assertEquals("guideChanged B", events.get(3));
+        assertEquals("feedChanged B 5", events.get(4));
+        assertEquals("guideAdded D", events.get(5));
+        assertEquals("guideRemoved C", events.get(6));
+    }
+
+    /**
+     * Feeds are matched by canonical URL's and duplicates in the order they go.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    public void testKeys()
+        throws ImporterException
+    {
+        String oldOPML =
+            "<opml version=\"1.1\"><body><outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" />" +
+            "</outline></body></opml>";
+        String newOPML =
+            "<opml version=\"1.1\"><body><outline text=\"A\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"feed://A.com/rss/\" />" +
+            "</outline></body></opml>";
+
+        List<String> events = diff(oldOPML, newOPML);
+        assertEquals(2, events.size());
+        assertEquals("feedChanged A 1", events.get(0));
+        assertEquals("feedRemoved A 1", events.get(1));
+    }
+
+    /**
+     * Imports the sets and returns the differences.
+     *
+     * @param oldOPML   old resource.
+     * @param newOPML   new resource.
+     *
+     * @return events.
+     *
+     * @throws ImporterException in case of any errors.
+     */
+    private List<String> diff(String oldOPML, String newOPML)
+        throws ImporterException
+    {
+        OPMLGuideSet oldSet = importer.processFromString(oldOPML, false);
+        OPMLGuideSet newSet = importer.processFromString(newOPML, false);
+
+        Recorder recorder = new Recorder();
+        GuideSetDiff.diff(oldSet, newSet, recorder);
+        return recorder.events;
+    }
+
+    /**
+     * Records the events.
+     */
+    private static class Recorder implements GuideSetDiffListener
+    {
+        private final List<String> events = new ArrayList<String>();
+
+        public void onGuideAdded(OPMLGuide guide)
+        {
+            events.add("guideAdded " + guide.getTitle());
+        }
+
+        public void onGuideRemoved(OPMLGuide guide)
+        {
+            events.add("guideRemoved " + guide.getTitle());
+        }
+
+        public void onGuideChanged(OPMLGuide oldGuide, OPMLGuide newGuide)
+        {
+            events.add("guideChanged " + newGuide.getTitle());
+        }
+
+        public void onFeedAdded(OPMLGuide guide, DefaultOPMLFeed feed)
+        {
+            events.add("feedAdded " + guide.getTitle() + " " + feed.getTitle());
+        }
+
+        public void onFeedRemoved(OPMLGuide guide, DefaultOPMLFeed feed)
+        {
+            events.add("feedRemoved " + guide.getTitle() + " " + feed.getTitle());
+        }
+
+        public void onFeedChanged(OPMLGuide guide, DefaultOPMLFeed oldFeed, DefaultOPMLFeed newFeed)
+        {
+            events.add("feedChanged " + guide.getTitle() + " " + newFeed.getTitle());
+        }
+
+        public void onReadingListAdded(OPMLGuide guide, OPMLReadingList list)
+        {
+            events.add("listAdded " + guide.getTitle() + " " + list.getTitle());
+        }
+
+        public void onReadingListRemoved(OPMLGuide guide, OPMLReadingList list)
+        {
+            events.add("listRemoved " + guide.getTitle() + " " + list.getTitle());
+        }
+
+        public void onReadingListChanged(OPMLGuide guide, OPMLReadingList oldList, OPMLReadingList newList)
+        {
+            events.add("listChanged " + guide.getTitle() + " " + newList.getTitle());
+        }
+    }
+}
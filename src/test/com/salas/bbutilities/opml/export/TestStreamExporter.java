@@ -0,0 +1,186 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.export;
+
+import com.salas.bbutilities.opml.Importer;
+import com.salas.bbutilities.opml.objects.*;
+import com.salas.bbutilities.opml.utils.Transformation;
+import junit.framework.TestCase;
+import org.jdom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This suite contains tests for <code>StreamExporter</code> unit.
+ */
+public class TestStreamExporter extends TestCase
+{
+    protected void setUp() throws Exception
+    {
+        AbstractExporter.setGenerator(null);
+    }
+
+    /**
+     * Streamed output is exactly the same as of the document exporter.
+     */
+    public void testSameOutput()
+        throws Exception
+    {
+        OPMLGuideSet set = createSet();
+
+        checkSameOutput(set, false);
+        checkSameOutput(set, true);
+        checkSameOutput(new OPMLGuideSet(null, new OPMLGuide[0], null), true);
+    }
+
+    /**
+     * Writing to the stream encodes in UTF-8.
+     */
+    public void testOutputStream()
+        throws Exception
+    {
+        OPMLGuideSet set = createSet();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new StreamExporter(true).export(set, out);
+
+        assertEquals(Transformation.documentToString(new Exporter(true).export(set)), out.toString("UTF-8"));
+    }
+
+    /**
+     * Documents and sets are written to channels and buffers without intermediate strings.
+     */
+    public void testChannelAndBuffer()
+        throws Exception
+    {
+        OPMLGuideSet set = createSet();
+        Document doc = new Exporter(true).export(set);
+        String expected = Transformation.documentToString(doc);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Transformation.documentToStream(doc, out);
+        assertEquals(expected, out.toString("UTF-8"));
+
+        out = new ByteArrayOutputStream();
+        Transformation.documentToChannel(doc, Channels.newChannel(out));
+        assertEquals(expected, out.toString("UTF-8"));
+
+        out = new ByteArrayOutputStream();
+        new StreamExporter(true).export(set, Channels.newChannel(out));
+        assertEquals(expected, out.toString("UTF-8"));
+
+        // Small buffer grows, while the big one is used as is
+        ByteBuffer small = ByteBuffer.allocate(16);
+        assertEquals(expected, toString(Transformation.documentToBuffer(doc, small)));
+        assertEquals(expected, toString(new StreamExporter(true).export(set, small)));
+
+        ByteBuffer big = ByteBuffer.allocateDirect(64 * 1024);
+        ByteBuffer result = new StreamExporter(true).export(set, big);
+        assertSame(big, result);
+        assertEquals(expected, toString(result));
+    }
+
+    /**
+     * Packed keys of articles are read back by the importer.
+     */
+    public void testPackedArticleKeys()
+        throws Exception
+    {
+        OPMLGuide guide = new OPMLGuide("Guide", null, false, null, null, false, 0, false, false, false);
+        ArrayList<DefaultOPMLFeed> feeds = new ArrayList<DefaultOPMLFeed>();
+        feeds.add(new DirectOPMLFeed("Feed", "http://xml", null, 2, "777937b4,1a", "k1", 10, null, null, null,
+            null, null, null, false, 2, true, 1, null, 0));
+        guide.setFeeds(feeds);
+        OPMLGuideSet set = new OPMLGuideSet("Set", new OPMLGuide[] { guide }, null);
+
+        StreamExporter exporter = new StreamExporter(true);
+        exporter.setPackedArticleKeys(true);
+        StringWriter out = new StringWriter();
+        exporter.export(set, out);
+
+        String opml = out.toString();
+        assertTrue(opml, opml.indexOf("bb:readArticlesPacked=") != -1);
+        assertTrue(opml, opml.indexOf("bb:pinnedArticles=\"k1\"") != -1);
+
+        DefaultOPMLFeed feed = new Importer().processFromString(opml, false).getGuides()[0].getFeeds().get(0);
+        assertTrue(feed.getReadArticles().isCompact());
+        assertEquals(0x777937b4, feed.getReadArticles().toArray()[0]);
+        assertEquals("777937b4,1a", feed.getReadArticlesKeys());
+        assertEquals("k1", feed.getPinnedArticlesKeys());
+    }
+
+    private static String toString(ByteBuffer buffer)
+        throws Exception
+    {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return new String(data, "UTF-8");
+    }
+
+    private static void checkSameOutput(OPMLGuideSet set, boolean extended)
+        throws Exception
+    {
+        StringWriter out = new StringWriter();
+        new StreamExporter(extended).export(set, out);
+
+        assertEquals(Transformation.documentToString(new Exporter(extended).export(set)), out.toString());
+    }
+
+    private static OPMLGuideSet createSet()
+    {
+        OPMLGuide guide = new OPMLGuide("Guide <1> & \"2\"", "icon", true, "pub", "a b", true, 3, true, false, true);
+        List<DirectOPMLFeed> listFeeds = new ArrayList<DirectOPMLFeed>();
+        listFeeds.add(new DirectOPMLFeed("In list", "http://list/1", null, 1, null, null, -1, null, null, null,
+            null, null, null, false, 1, false, 1, null, 0));
+        OPMLReadingList list = new OPMLReadingList("List", "http://list");
+        list.setFeeds(listFeeds);
+        guide.add(list);
+        guide.add(new OPMLReadingList("Empty list", "http://empty"));
+
+        ArrayList<DefaultOPMLFeed> feeds = new ArrayList<DefaultOPMLFeed>();
+        feeds.add(new DirectOPMLFeed("Caf\u00e9\ttab", "http://xml?a=1&b=2", "http://html", 2, "k1,k2", "p1", 10,
+            "custom", "creator", "line 1\nline 2\r\n", "t1 t2", "desc", "ext", true, 2, true, 1,
+            Boolean.TRUE, 1));
+        feeds.add(new QueryOPMLFeed("Query", 2, "a b c", null, null, null, 1, 2, 1, true, 2, null, 0));
+        feeds.add(new SearchOPMLFeed("Search", "a", 1, 2, 1, true, 2, true, 0));
+        guide.setFeeds(feeds);
+
+        OPMLGuide onlyQueries = new OPMLGuide("Only queries", null, false, null, null, false, 0, false, false, false);
+        ArrayList<DefaultOPMLFeed> queries = new ArrayList<DefaultOPMLFeed>();
+        queries.add(new SearchOPMLFeed("Search", "b", 1, 2, 1, false, 2, null, 0));
+        onlyQueries.setFeeds(queries);
+
+        OPMLGuide empty = new OPMLGuide("Empty", null, false, null, null, false, 0, false, false, false);
+
+        return new OPMLGuideSet("Title\nwith <line>", new OPMLGuide[] { guide, onlyQueries, empty },
+            new Date(1000000000000L));
+    }
+}
@@ -0,0 +1,199 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.fetch;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+/**
+ * This suite contains tests for <code>CachingFetcher</code> and cache stores.
+ */
+public class TestCachingFetcher extends TestCase
+{
+    private HttpServer server;
+    private URL url;
+
+    private String content;
+    private int requests;
+    private int fullResponses;
+
+    protected void setUp() throws Exception
+    {
+        content = "<opml/>";
+        requests = 0;
+        fullResponses = 0;
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                requests++;
+
+                String eTag = "\"" + content.hashCode() + "\"";
+                exchange.getResponseHeaders().set("ETag", eTag);
+                if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match")))
+                {
+                    exchange.sendResponseHeaders(304, -1);
+                } else
+                {
+                    fullResponses++;
+                    byte[] data = content.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, data.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(data);
+                    out.close();
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+
+        url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/list.opml");
+    }
+
+    protected void tearDown() throws Exception
+    {
+        server.stop(0);
+    }
+
+    /**
+     * Unchanged resource is requested conditionally and taken from the cache.
+     */
+    public void testConditionalGet()
+        throws IOException
+    {
+        CachingFetcher fetcher = new CachingFetcher(new MemoryCacheStore(1024));
+
+        assertEquals("<opml/>", read(fetcher.open(url)));
+        assertEquals("<opml/>", read(fetcher.open(url)));
+        assertEquals(2, requests);
+        assertEquals(1, fullResponses);
+
+        content = "<opml version=\"1.1\"/>";
+        assertEquals(content, read(fetcher.open(url)));
+        assertEquals(2, fullResponses);
+    }
+
+    /**
+     * Disk cache survives between fetchers.
+     */
+    public void testDiskCache()
+        throws IOException
+    {
+        File dir = createTempDir();
+        try
+        {
+            assertEquals("<opml/>", read(new CachingFetcher(new DiskCacheStore(dir, 1024)).open(url)));
+            assertEquals("<opml/>", read(new CachingFetcher(new DiskCacheStore(dir, 1024)).open(url)));
+            assertEquals(1, fullResponses);
+        } finally
+        {
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+    }
+
+    /**
+     * Least recently used entries are evicted when the store is over the limit.
+     */
+    public void testMemoryEviction()
+    {
+        MemoryCacheStore store = new MemoryCacheStore(10);
+        store.put("a", new CacheEntry(new byte[4], "a", null));
+        store.put("b", new CacheEntry(new byte[4], "b", null));
+        assertNotNull(store.get("a"));
+
+        store.put("c", new CacheEntry(new byte[4], "c", null));
+        assertNotNull(store.get("a"));
+        assertNull(store.get("b"));
+        assertNotNull(store.get("c"));
+        assertEquals(8, store.getSize());
+
+        store.put("d", new CacheEntry(new byte[11], "d", null));
+        assertNull(store.get("d"));
+        assertEquals(8, store.getSize());
+    }
+
+    /**
+     * Least recently used files are deleted when the store is over the limit.
+     */
+    public void testDiskEviction()
+        throws IOException
+    {
+        File dir = createTempDir();
+        try
+        {
+            DiskCacheStore store = new DiskCacheStore(dir, 200);
+            store.put("a", new CacheEntry(new byte[80], "a", "Sun, 18 Oct 2026 00:00:00 GMT"));
+            new File(dir, dir.list()[0]).setLastModified(System.currentTimeMillis() - 10000);
+            store.put("b", new CacheEntry(new byte[80], null, null));
+            store.put("c", new CacheEntry(new byte[80], "c", null));
+
+            assertNull(store.get("a"));
+            assertNotNull(store.get("b"));
+            CacheEntry entry = store.get("c");
+            assertEquals("c", entry.getETag());
+            assertNull(entry.getLastModified());
+            assertEquals(80, entry.getData().length);
+
+            assertEquals(store.getSize(), new DiskCacheStore(dir, 200).getSize());
+        } finally
+        {
+            File[] files = dir.listFiles();
+            if (files != null) for (File file : files) file.delete();
+            dir.delete();
+        }
+    }
+
+    private static File createTempDir()
+        throws IOException
+    {
+        File dir = File.createTempFile("cache", "");
+        dir.delete();
+        return dir;
+    }
+
+    private static String read(InputStream in)
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) out.write(b);
+        in.close();
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,105 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.objects;
+
+import junit.framework.TestCase;
+
+/**
+ * This suite contains tests for <code>ArticleKeys</code> unit.
+ */
+public class TestArticleKeys extends TestCase
+{
+    /**
+     * Lists of hexadecimal keys are kept compact and restored as they were.
+     */
+    public void testCompact()
+    {
+        String text = "777937b4,0,ffffffff,1a,80000000";
+        ArticleKeys keys = ArticleKeys.valueOf(text);
+
+        assertTrue(keys.isCompact());
+        assertEquals(text, keys.toString());
+        assertEquals(5, keys.toArray().length);
+        assertEquals(0x777937b4, keys.toArray()[0]);
+        assertEquals(-1, keys.toArray()[2]);
+    }
+
+    /**
+     * Lists in any other form are kept as they are.
+     */
+    public void testNonCompact()
+    {
+        String[] texts = { "", "a,", ",a", "a,,b", "0a", "A", "123456789", "a b", "k1,k2", "1, 2" };
+        for (String text : texts)
+        {
+            ArticleKeys keys = ArticleKeys.valueOf(text);
+            assertFalse(text, keys.isCompact());
+            assertSame(text, keys.toString());
+            assertNull(keys.toArray());
+            assertNull(keys.toPackedString());
+        }
+
+        assertNull(ArticleKeys.valueOf(null));
+    }
+
+    /**
+     * Packed form restores the same keys in the same order.
+     */
+    public void testPacked()
+    {
+        String[] texts = { "0", "777937b4,0,ffffffff,1a,80000000,7fffffff,80000000", "1,2,3,4,5" };
+        for (String text : texts)
+        {
+            ArticleKeys keys = ArticleKeys.valueOf(text);
+            String packed = keys.toPackedString();
+
+            ArticleKeys unpacked = ArticleKeys.valueOfPacked(packed);
+            assertEquals(keys, unpacked);
+            assertEquals(text, unpacked.toString());
+        }
+
+        // Close keys take a byte each
+        assertEquals("AgICAgI=", ArticleKeys.valueOf("1,2,3,4,5").toPackedString());
+    }
+
+    /**
+     * Broken packed forms are reported.
+     */
+    public void testBrokenPacked()
+    {
+        String[] packed = { "", "gA==", "//////8B", "!" };
+        for (String text : packed)
+        {
+            try
+            {
+                ArticleKeys.valueOfPacked(text);
+                fail("Exception expected for: " + text);
+            } catch (IllegalArgumentException e)
+            {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.objects;
+
+import com.salas.bbutilities.opml.Importer;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+
+/**
+ * This suite contains tests for <code>FeedTable</code> unit.
+ */
+public class TestFeedTable extends TestCase
+{
+    /**
+     * Feeds are restored from the columns as they were added.
+     */
+    public void testRoundTrip()
+    {
+        OPMLGuide a = createGuide("a");
+        OPMLGuide b = createGuide("b");
+
+        DirectOPMLFeed feed1 = new DirectOPMLFeed("1", "http://a/", null, 3, "1a,2b", null, 10,
+            null, null, null, null, null, null, false, 1, true, 2, Boolean.FALSE, 3);
+        feed1.setUpdatePeriod(60000L);
+        DirectOPMLFeed feed2 = new DirectOPMLFeed("", "http://b/", "http://b/home", -1, null, "x", -1,
+            "c", "d", "e", "f g", "h", "", true, -1, false, -1, null, -1);
+        SearchOPMLFeed feed3 = new SearchOPMLFeed("3", "q", 5, 2, -1, false, -1, Boolean.TRUE, -1);
+
+        FeedTable.Builder builder = new FeedTable.Builder();
+        builder.startGuide(a);
+        builder.add(feed1);
+        builder.startGuide(b);
+        builder.add(feed2);
+        builder.startGuide(a);
+        builder.add(feed3);
+        FeedTable table = builder.build();
+
+        assertEquals(3, table.size());
+        assertEquals(2, table.getGuides().length);
+        assertEquals(0, table.getGuideIndex(2));
+
+        assertEquals("http://a/", table.getXmlURL(0));
+        assertNull(table.getHtmlURL(0));
+        assertEquals(60000L, table.getUpdatePeriod(0));
+        assertEquals(Boolean.FALSE, table.getAscendingSorting(0));
+        assertTrue(table.isViewModeEnabled(0));
+        assertEquals("", table.getTitle(1));
+        assertEquals("", table.getTagsExtended(1));
+        assertTrue(table.isDisabled(1));
+        assertNull(table.getAscendingSorting(1));
+        assertFalse(table.isDirect(2));
+        assertEquals(2, table.getRating(2));
+
+        Iterator<DefaultOPMLFeed> it = table.iterator();
+        assertEquals(feed1, it.next());
+        assertEquals(feed2, it.next());
+        assertSame(feed3, it.next());
+        assertFalse(it.hasNext());
+
+        OPMLGuide[] guides = table.toGuides();
+        assertEquals("a", guides[0].getTitle());
+        assertEquals(2, guides[0].getFeeds().size());
+        assertEquals(1, guides[1].getFeeds().size());
+        assertEquals(0, table.getGuides()[0].getFeeds().size());
+    }
+
+    /**
+     * Guides go in the same order as in the set imported from the same resource, with the
+     * root guide of the top-level feeds on top.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testGuidesOrder()
+        throws Exception
+    {
+        String opml =
+            "<opml version=\"1.1\"><head><title>Set</title></head><body>" +
+            "<outline text=\"G\">" +
+                "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\"/>" +
+            "</outline>" +
+            "<outline type=\"rss\" text=\"2\" xmlUrl=\"http://b.com/rss\"/>" +
+            "<outline text=\"H\">" +
+                "<outline type=\"rss\" text=\"3\" xmlUrl=\"http://c.com/rss\"/>" +
+            "</outline>" +
+            "<outline type=\"rss\" text=\"4\" xmlUrl=\"http://d.com/rss\"/>" +
+            "</body></opml>";
+
+        Importer importer = new Importer();
+        OPMLGuide[] expected = importer.processFromString(opml, false).getGuides();
+        FeedTable table = importer.processTable(new ByteArrayInputStream(opml.getBytes("UTF-8")));
+        OPMLGuide[] guides = table.toGuides();
+
+        assertEquals(3, expected.length);
+        assertEquals(expected.length, guides.length);
+        for (int i = 0; i < guides.length; i++)
+        {
+            assertEquals(expected[i].getTitle(), guides[i].getTitle());
+            assertEquals(expected[i].getTitle(), table.getGuides()[i].getTitle());
+            assertEquals(expected[i].getFeeds(), guides[i].getFeeds());
+        }
+
+        assertEquals(0, table.getGuideIndex(1));
+        assertEquals(2, table.getGuideIndex(2));
+    }
+
+    /**
+     * The table doesn't change when the builder continues.
+     */
+    public void testGrowth()
+    {
+        FeedTable.Builder builder = new FeedTable.Builder();
+        builder.startGuide(createGuide("a"));
+        for (int i = 0; i < 100; i++)
+        {
+            builder.add(new DirectOPMLFeed("feed " + i, "http://localhost/" + i, null, -1, null, null, -1,
+                null, null, null, null, null, null, false, -1, false, -1, null, -1));
+        }
+
+        FeedTable table = builder.build();
+        builder.add(new DirectOPMLFeed("x", "x", null, -1, null, null, -1,
+            null, null, null, null, null, null, false, -1, false, -1, null, -1));
+
+        assertEquals(100, table.size());
+        assertEquals(101, builder.build().size());
+        assertEquals("feed 99", table.getTitle(99));
+        assertEquals("http://localhost/57", table.getXmlURL(57));
+
+        try
+        {
+            table.getTitle(100);
+            fail("There's no such row.");
+        } catch (IndexOutOfBoundsException e)
+        {
+            // Expected
+        }
+    }
+
+    /**
+     * Feeds can't be added before the guide is started.
+     */
+    public void testNoGuide()
+    {
+        try
+        {
+            new FeedTable.Builder().add(new SearchOPMLFeed("3", "q", 5, 2, -1, false, -1, null, -1));
+            fail("No guide is started.");
+        } catch (IllegalStateException e)
+        {
+            // Expected
+        }
+    }
+
+    /**
+     * Creates guide.
+     *
+     * @param title title.
+     *
+     * @return guide.
+     */
+    private static OPMLGuide createGuide(String title)
+    {
+        return new OPMLGuide(title, null, false, null, null, false, 0, false, false, false);
+    }
+}
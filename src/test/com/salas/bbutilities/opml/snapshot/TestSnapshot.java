@@ -0,0 +1,227 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.snapshot;
+
+import com.salas.bbutilities.opml.Importer;
+import com.salas.bbutilities.opml.ImporterException;
+import com.salas.bbutilities.opml.objects.*;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+/**
+ * This suite contains tests for <code>SnapshotWriter</code> and <code>SnapshotReader</code> units.
+ */
+public class TestSnapshot extends TestCase
+{
+    private static final String OPML =
+        "<opml version=\"1.1\" xmlns:bb=\"http://blogbridge.com/ns/2006/opml\">" +
+        "<head><title>Feeds</title><dateModified>Mon, 01 Jan 2007 10:00:00 GMT</dateModified></head>" +
+        "<body>" +
+        "<outline text=\"A\" bb:icon=\"i\" bb:pubEnabled=\"true\" bb:pubTitle=\"p\" bb:mobile=\"true\">" +
+            "<outline type=\"rss\" text=\"1\" xmlUrl=\"http://a.com/rss\" htmlUrl=\"http://a.com/\" " +
+                "bb:rating=\"1\" bb:readArticles=\"1a,2b\" bb:pinnedArticles=\"x\" bb:updatePeriod=\"60000\" " +
+                "bb:tags=\"t \u00e9\" bb:customTitle=\"c\" bb:ascendingSorting=\"false\" bb:disabled=\"true\"/>" +
+            "<outline type=\"search\" text=\"2\" bb:query=\"q\" bb:dedupEnabled=\"true\" bb:dedupFrom=\"1\" bb:dedupTo=\"2\"/>" +
+            "<outline type=\"query\" text=\"3\" bb:queryType=\"2\" bb:queryParam=\"p\" bb:limit=\"5\"/>" +
+        "</outline>" +
+        "<outline text=\"B\">" +
+            "<outline type=\"rss\" text=\"4\" xmlUrl=\"http://a.com/rss\" bb:viewModeEnabled=\"true\" bb:viewMode=\"2\"/>" +
+        "</outline>" +
+        "</body></opml>";
+
+    private OPMLGuideSet set;
+
+    protected void setUp()
+        throws Exception
+    {
+        set = new Importer().processFromString(OPML, false);
+    }
+
+    /**
+     * The set is restored as it was written.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testRoundTrip()
+        throws Exception
+    {
+        SnapshotReader reader = new SnapshotReader(ByteBuffer.wrap(write(set)));
+
+        assertEquals(set.getTitle(), reader.getTitle());
+        assertEquals(set.getDateModified(), reader.getDateModified());
+        assertEquals(2, reader.getGuideCount());
+
+        // Guides are decoded independently
+        assertEqualGuides(set.getGuides()[1], reader.getGuide(1));
+        assertEqualGuides(set.getGuides()[0], reader.getGuide(0));
+        assertNotSame(reader.getGuide(0), reader.getGuide(0));
+
+        OPMLGuideSet copy = reader.getGuideSet();
+        assertEquals(2, copy.getGuides().length);
+        assertEqualGuides(set.getGuides()[0], copy.getGuides()[0]);
+    }
+
+    /**
+     * Reading lists and empty sets are restored.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testReadingListsAndEmptySet()
+        throws Exception
+    {
+        OPMLGuide guide = new OPMLGuide("g", "", false, null, null, false, 0, false, false, false);
+        OPMLReadingList list = new OPMLReadingList("l", "http://l/");
+        list.getFeeds().add(new DirectOPMLFeed("f", "http://f/", null, -1, null, null, -1,
+            null, null, null, null, null, null, false, -1, false, -1, null, -1));
+        guide.add(list);
+
+        SnapshotReader reader = new SnapshotReader(ByteBuffer.wrap(write(
+            new OPMLGuideSet(null, new OPMLGuide[] { guide }, null))));
+        assertNull(reader.getTitle());
+        assertNull(reader.getDateModified());
+
+        OPMLReadingList[] lists = reader.getGuide(0).getReadingLists();
+        assertEquals(1, lists.length);
+        assertEquals("l", lists[0].getTitle());
+        assertEquals(list.getFeeds(), lists[0].getFeeds());
+
+        reader = new SnapshotReader(ByteBuffer.wrap(write(new OPMLGuideSet("t", new OPMLGuide[0], new Date(5)))));
+        assertEquals(0, reader.getGuideCount());
+        assertEquals(new Date(5), reader.getDateModified());
+    }
+
+    /**
+     * The snapshot is read from the file.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testFile()
+        throws Exception
+    {
+        Path path = Files.createTempFile("snapshot", ".bin");
+        try
+        {
+            SnapshotWriter.write(set, path);
+            SnapshotReader reader = SnapshotReader.open(path);
+            assertEqualGuides(set.getGuides()[0], reader.getGuide(0));
+        } finally
+        {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * Other data and truncated snapshots are reported.
+     *
+     * @throws Exception in case of any errors.
+     */
+    public void testCorrupted()
+        throws Exception
+    {
+        assertCorrupted("<opml/>".getBytes());
+
+        byte[] data = write(set);
+        data[5] = 2;
+        assertCorrupted(data);
+
+        data = write(set);
+        // Truncated in the middle of the string table
+        byte[] truncated = new byte[20];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertCorrupted(truncated);
+
+        // Truncated in the middle of the guides
+        data = write(set);
+        truncated = new byte[data.length - 10];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        SnapshotReader reader = new SnapshotReader(ByteBuffer.wrap(truncated));
+        try
+        {
+            reader.getGuide(1);
+            fail("The guide is truncated.");
+        } catch (ImporterException e)
+        {
+            assertEquals(ImporterException.TYPE_PARSING, e.getType());
+        }
+    }
+
+    /**
+     * Checks that the data isn't read.
+     *
+     * @param data data.
+     */
+    private static void assertCorrupted(byte[] data)
+    {
+        try
+        {
+            new SnapshotReader(ByteBuffer.wrap(data));
+            fail("The data isn't a snapshot.");
+        } catch (ImporterException e)
+        {
+            assertEquals(ImporterException.TYPE_PARSING, e.getType());
+        }
+    }
+
+    /**
+     * Compares guides with their feeds.
+     *
+     * @param expected  expected guide.
+     * @param actual    actual guide.
+     */
+    private static void assertEqualGuides(OPMLGuide expected, OPMLGuide actual)
+    {
+        assertEquals(expected.toString(), actual.toString());
+        assertEquals(expected.getIcon(), actual.getIcon());
+        assertEquals(expected.getFeeds(), actual.getFeeds());
+
+        for (int i = 0; i < expected.getFeeds().size(); i++)
+        {
+            assertEquals(expected.getFeeds().get(i).toString(), actual.getFeeds().get(i).toString());
+        }
+    }
+
+    /**
+     * Writes the snapshot of the set.
+     *
+     * @param aSet set.
+     *
+     * @return snapshot.
+     *
+     * @throws IOException in case of I/O error.
+     */
+    private static byte[] write(OPMLGuideSet aSet)
+        throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotWriter.write(aSet, out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,166 @@
+// BlogBridge -- RSS feed reader, manager, and web based service
+// Copyright (C) 2002, 2003, 2004 by R. Pito Salas
+//
+// This program is free software; you can redistribute it and/or modify it under
+// the terms of the GNU General Public License as published by the Free Software Foundation;
+// either version 2 of the License, or (at your option) any later version.
+//
+// This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+// without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+// See the GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License along with this program;
+// if not, write to the Free Software Foundation, Inc., 59 Temple Place,
+// Suite 330, Boston, MA 02111-1307 USA
+//
+// Contact: R. Pito Salas
+// mailto:pitosalas@users.sourceforge.net
+// More information: about BlogBridge
+// http://www.blogbridge.com
+// http://sourceforge.net/projects/blogbridge
+//
+// $Id$
+//
+
+package com.salas.bbutilities.opml.utils;
+
+import com.salas.bbutilities.opml.objects.FormatConstants;
+import junit.framework.TestCase;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * This suite contains tests for <code>DateCodec</code> unit.
+ */
+public class TestDateCodec extends TestCase
+{
+    /** 6 Nov 1994 08:49:37 GMT. */
+    private static final long TIME = 784111777000L;
+
+    /**
+     * Dates are written the same way the formatter of the pattern does it.
+     */
+    public void testFormat()
+    {
+        Date date = new Date();
+        assertEquals(new SimpleDateFormat(FormatConstants.DATE_FORMAT, Locale.US).format(date),
+            DateCodec.format(date));
+    }
+
+    /**
+     * Formatted dates are read back.
+     */
+    public void testRoundTrip()
+        throws ParseException
+    {
+        Date date = new Date(TIME);
+        assertEquals(date, DateCodec.parse(DateCodec.format(date)));
+    }
+
+    /**
+     * Common RFC-822 variations are understood.
+     */
+    public void testParseVariants()
+        throws ParseException
+    {
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 08:49:37 GMT").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 06 Nov 1994 08:49:37 UT").getTime());
+        assertEquals(TIME, DateCodec.parse("6 Nov 1994 08:49:37 GMT").getTime());
+        assertEquals(TIME, DateCodec.parse("  sun, 6 NOV 94 08:49:37 Z ").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 03:49:37 EST").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 04:49:37 EDT").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 00:49:37 PST").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 10:49:37 +0200").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 03:19:37 -0530").getTime());
+        assertEquals(TIME - 37000, DateCodec.parse("Sun, 6 Nov 1994 08:49 GMT").getTime());
+        assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 09:49:37 Europe/Paris").getTime());
+
+        // The day of week isn't checked
+        assertEquals(TIME, DateCodec.parse("Mon, 6 Nov 1994 08:49:37 GMT").getTime());
+    }
+
+    /**
+     * Dates written in other time zones are read correctly.
+     */
+    public void testParseOtherDefaultZone()
+        throws ParseException
+    {
+        TimeZone zone = TimeZone.getDefault();
+        try
+        {
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            Date date = new Date(TIME);
+            String text = DateCodec.format(date);
+            assertTrue(text, text.endsWith("EST"));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+            assertEquals(date, DateCodec.parse(text));
+        } finally
+        {
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    /**
+     * Dates are read back in the default zones with ambiguous short names.
+     */
+    public void testRoundTripAmbiguousZones()
+        throws ParseException
+    {
+        String[] zones = { "Asia/Shanghai", "Asia/Kolkata", "Asia/Jerusalem", "Europe/Dublin",
+            "America/Chicago", "America/New_York" };
+        long[] times = { TIME, TIME + 183L * 24 * 3600 * 1000 };
+
+        TimeZone zone = TimeZone.getDefault();
+        try
+        {
+            for (String id : zones)
+            {
+                TimeZone.setDefault(TimeZone.getTimeZone(id));
+                for (long time : times)
+                {
+                    Date date = new Date(time);
+                    assertEquals(id, date, DateCodec.parse(DateCodec.format(date)));
+                }
+            }
+
+            // The hour repeated at the end of daylight saving: 5 Nov 2006 01:30 EDT and EST
+            TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+            Date date = new Date(1162704600000L);
+            assertEquals(date, DateCodec.parse(DateCodec.format(date)));
+            date = new Date(1162704600000L + 3600000);
+            assertEquals(date, DateCodec.parse(DateCodec.format(date)));
+
+            // Other zones with the same names are still understood
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+            assertEquals(TIME, DateCodec.parse("Sun, 6 Nov 1994 03:49:37 EST").getTime());
+        } finally
+        {
+            TimeZone.setDefault(zone);
+        }
+    }
+
+    /**
+     * Invalid dates are reported.
+     */
+    public void testParseInvalid()
+    {
+        String[] texts = { "", "Sun,", "6 Nov 1994", "6 Nov 1994 08:49:37", "6 Nov 1994 08:49:37 XYZ",
+            "32 Nov 1994 08:49:37 GMT", "6 Nov 1994 08:49:37 GMT garbage" };
+        for (String text : texts)
+        {
+            try
+            {
+                DateCodec.parse(text);
+                fail("Exception expected for: " + text);
+            } catch (ParseException e)
+            {
+                // Expected
+            }
+        }
+    }
+}